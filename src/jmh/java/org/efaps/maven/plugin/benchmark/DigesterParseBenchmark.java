@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
+import org.apache.commons.digester3.binder.DigesterLoader;
+import org.apache.commons.io.IOUtils;
+import org.efaps.maven.plugin.install.digester.CIExtractor;
+import org.efaps.maven.plugin.install.digester.CIExtractor.Extent;
+import org.efaps.maven.plugin.install.digester.DBPropertiesCI;
+import org.efaps.maven.plugin.install.digester.DigesterRegistry;
+import org.efaps.maven.plugin.install.digester.FormCI;
+import org.efaps.maven.plugin.install.digester.MsgPhraseCI;
+import org.efaps.maven.plugin.install.digester.NumGenCI;
+import org.efaps.maven.plugin.install.digester.StatusGroupCI;
+import org.efaps.maven.plugin.install.digester.TableCI;
+import org.efaps.maven.plugin.install.digester.TypeCI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Parse throughput of the digester CI model for representative files. Every
+ * benchmark parses one file, so the score is files per millisecond. The
+ * allocation per file is reported by the gc profiler (-prof gc, the default
+ * of the jmh profile).
+ * <ul>
+ * <li>{@link #newLoaderPerFile()}: a new loader for each file</li>
+ * <li>{@link #newDigesterPerFile()}: one loader, a new digester (and parser)
+ * for each file</li>
+ * <li>{@link #reusedParser(ParserState)}: one loader, a new digester for each
+ * file on a parser reused by the thread</li>
+ * <li>{@link #registry()}: the digester of the thread kept by the
+ * {@link DigesterRegistry}</li>
+ * <li>{@link #extractor(ParserState)}: the {@link CIExtractor} of the thread
+ * reading the complete file</li>
+ * <li>{@link #extractorHeader(ParserState)}: the {@link CIExtractor} of the
+ * thread stopping after the header, as used by the generate-updatepack
+ * goal</li>
+ * </ul>
+ *
+ * @author The eFaps Team
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DigesterParseBenchmark
+{
+
+    /** The CI classes the rules are bound from. */
+    private static final Class<?>[] CI_CLASSES = { TypeCI.class, StatusGroupCI.class, FormCI.class, TableCI.class,
+                    MsgPhraseCI.class, NumGenCI.class, DBPropertiesCI.class };
+
+    /** The file to parse, name of a resource in /benchmark. */
+    @Param({ "datamodel-type", "ui-form", "ui-table", "dbproperties" })
+    public String sample;
+
+    /** The content of the file. */
+    private byte[] content;
+
+    /** The loader shared by the iterations. */
+    private DigesterLoader loader;
+
+    /**
+     * Read the sample and create the shared loader.
+     *
+     * @throws IOException on error
+     * @throws SAXException on error
+     */
+    @Setup
+    public void setup()
+        throws IOException, SAXException
+    {
+        try (InputStream stream = DigesterParseBenchmark.class.getResourceAsStream("/benchmark/" + sample
+                        + ".xml")) {
+            content = IOUtils.toByteArray(stream);
+        }
+        loader = newLoader();
+        if (loader.newDigester().parse(getSource()) == null) {
+            throw new IllegalStateException("Sample not parsed: " + sample);
+        }
+    }
+
+    /**
+     * A new loader for each file, as done by the generate-jmsclass goal.
+     *
+     * @return the parsed item
+     * @throws IOException on error
+     * @throws SAXException on error
+     */
+    @Benchmark
+    public Object newLoaderPerFile()
+        throws IOException, SAXException
+    {
+        return newLoader().newDigester().parse(getSource());
+    }
+
+    /**
+     * One loader and a new digester for each file, as done by the
+     * generate-ciclass goal.
+     *
+     * @return the parsed item
+     * @throws IOException on error
+     * @throws SAXException on error
+     */
+    @Benchmark
+    public Object newDigesterPerFile()
+        throws IOException, SAXException
+    {
+        return loader.newDigester().parse(getSource());
+    }
+
+    /**
+     * One loader and a new digester for each file using a parser reused by
+     * the thread.
+     *
+     * @param state the parser of the thread
+     * @return the parsed item
+     * @throws IOException on error
+     * @throws SAXException on error
+     */
+    @Benchmark
+    public Object reusedParser(final ParserState state)
+        throws IOException, SAXException
+    {
+        return loader.newDigester(state.parser).parse(getSource());
+    }
+
+    /**
+     * The rule sets and digesters kept by the {@link DigesterRegistry}, as
+     * used by the mojos.
+     *
+     * @return the parsed item
+     * @throws IOException on error
+     * @throws SAXException on error
+     */
+    @Benchmark
+    public Object registry()
+        throws IOException, SAXException
+    {
+        return DigesterRegistry.parse(getSource(), CI_CLASSES);
+    }
+
+    /**
+     * The StAX extractor reading the complete file.
+     *
+     * @param state the extractor of the thread
+     * @return the extracted item
+     * @throws XMLStreamException on error
+     */
+    @Benchmark
+    public Object extractor(final ParserState state)
+        throws XMLStreamException
+    {
+        return state.extractor.extract(new ByteArrayInputStream(content), Extent.COMPLETE);
+    }
+
+    /**
+     * The StAX extractor stopping as soon as uuid and name are known.
+     *
+     * @param state the extractor of the thread
+     * @return the extracted item
+     * @throws XMLStreamException on error
+     */
+    @Benchmark
+    public Object extractorHeader(final ParserState state)
+        throws XMLStreamException
+    {
+        return state.extractor.extract(new ByteArrayInputStream(content), Extent.HEADER);
+    }
+
+    /**
+     * Gets the source for the sample.
+     *
+     * @return the source
+     */
+    protected InputSource getSource()
+    {
+        return new InputSource(new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Create a loader with the rules of the generate-ciclass goal plus the
+     * DBProperties.
+     *
+     * @return the loader
+     */
+    protected static DigesterLoader newLoader()
+    {
+        return DigesterLoader.newLoader(new FromAnnotationsRuleModule()
+        {
+
+            @Override
+            protected void configureRules()
+            {
+                for (final Class<?> clazz : CI_CLASSES) {
+                    bindRulesFrom(clazz);
+                }
+            }
+        });
+    }
+
+    /**
+     * Parser and extractor kept for one thread.
+     */
+    @State(Scope.Thread)
+    public static class ParserState
+    {
+
+        /** The parser. */
+        private SAXParser parser;
+
+        /** The extractor. */
+        private CIExtractor extractor;
+
+        /**
+         * Create the parser with the settings of a default loader.
+         *
+         * @throws ParserConfigurationException on error
+         * @throws SAXException on error
+         */
+        @Setup
+        public void setup()
+            throws ParserConfigurationException, SAXException
+        {
+            final SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(false);
+            factory.setValidating(false);
+            parser = factory.newSAXParser();
+            extractor = new CIExtractor(CI_CLASSES);
+        }
+    }
+}
@@ -46,7 +46,7 @@ public class CleanMojo
      *             failed
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException
     {
         init(true);
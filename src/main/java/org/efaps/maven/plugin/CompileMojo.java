@@ -18,6 +18,7 @@ package org.efaps.maven.plugin;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.update.schema.program.esjp.ESJPCompiler;
 import org.efaps.update.schema.program.jasperreport.JasperReportCompiler;
 import org.efaps.update.schema.program.staticsource.CSSCompiler;
@@ -50,34 +51,38 @@ public final class CompileMojo
      * Executes the compile goal.
      */
     @Override
-    public void execute()
+    protected void doExecute()
     {
         init(true);
         boolean abort = true;
         try {
             if ("all".equalsIgnoreCase(target)) {
                 LOG.info("==Compiling all Elements==");
-                Application.compileAll(getUserName(), getClasspathElements(), true);
+                try (Timer timer = startPhase("compile")) {
+                    Application.compileAll(getUserName(), getClasspathElements(), true);
+                }
             } else {
                 reloadCache();
                 startTransaction();
-                if ("java".equalsIgnoreCase(target)) {
-                    LOG.info("==Compiling Java==");
-                    new ESJPCompiler(getClasspathElements()).compile(null, true);
-                } else if ("css".equalsIgnoreCase(target)) {
-                    LOG.info("==Compiling CSS==");
-                    new CSSCompiler().compile();
-                } else if ("js".equalsIgnoreCase(target)) {
-                    LOG.info("==Compiling Javascript==");
-                    new JavaScriptCompiler().compile();
-                } else if ("wiki".equalsIgnoreCase(target)) {
-                    LOG.info("==Compiling Wiki==");
-                    new WikiCompiler().compile();
-                } else if ("jasper".equalsIgnoreCase(target)) {
-                    LOG.info("==Compiling JasperReports==");
-                    new JasperReportCompiler(getClasspathElements()).compile();
-                } else {
-                    LOG.error("target: " + target + "' not found");
+                try (Timer timer = startPhase("compile")) {
+                    if ("java".equalsIgnoreCase(target)) {
+                        LOG.info("==Compiling Java==");
+                        new ESJPCompiler(getClasspathElements()).compile(null, true);
+                    } else if ("css".equalsIgnoreCase(target)) {
+                        LOG.info("==Compiling CSS==");
+                        new CSSCompiler().compile();
+                    } else if ("js".equalsIgnoreCase(target)) {
+                        LOG.info("==Compiling Javascript==");
+                        new JavaScriptCompiler().compile();
+                    } else if ("wiki".equalsIgnoreCase(target)) {
+                        LOG.info("==Compiling Wiki==");
+                        new WikiCompiler().compile();
+                    } else if ("jasper".equalsIgnoreCase(target)) {
+                        LOG.info("==Compiling JasperReports==");
+                        new JasperReportCompiler(getClasspathElements()).compile();
+                    } else {
+                        LOG.error("target: " + target + "' not found");
+                    }
                 }
                 commitTransaction();
             }
@@ -15,43 +15,41 @@
  */
 package org.efaps.maven.plugin;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimeZone;
 import java.util.TreeMap;
 
-import org.apache.commons.digester3.Digester;
-import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
-import org.apache.commons.digester3.binder.DigesterLoader;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.lib.RepositoryBuilder;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.efaps.admin.runlevel.RunLevel;
 import org.efaps.db.Context;
 import org.efaps.init.StartupDatabaseConnection;
 import org.efaps.init.StartupException;
 import org.efaps.jaas.AppAccessHandler;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
+import org.efaps.maven.plugin.git.RepositoryRegistry;
+import org.efaps.maven.plugin.git.RevisionCache;
+import org.efaps.maven.plugin.git.RevisionResolver;
 import org.efaps.maven.plugin.install.digester.DBPropertiesCI;
+import org.efaps.maven.plugin.install.digester.DigesterRegistry;
 import org.efaps.maven.plugin.install.digester.IRelatedFiles;
 import org.efaps.maven.plugin.install.digester.ImageCI;
 import org.efaps.maven.plugin.install.digester.JasperImageCI;
+import org.efaps.maven.plugin.install.digester.RootElement;
 import org.efaps.util.EFapsException;
 import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.InputSource;
@@ -131,6 +129,50 @@ public abstract class EFapsAbstractMojo
     @Parameter(property = "project.compileClasspathElements", required = true, readonly = true)
     private List<String> classpathElements;
 
+    /**
+     * Log a summary of the metrics of the execution and write them to
+     * {@link #metricsFile}.
+     */
+    @Parameter(property = "efaps.metrics", defaultValue = "true")
+    private boolean metrics;
+
+    /**
+     * File the metrics of the execution are written to. Every goal adds its
+     * own entry to the file.
+     */
+    @Parameter(property = "efaps.metricsFile", defaultValue = "${project.build.directory}/efaps-metrics.json")
+    private File metricsFile;
+
+    /**
+     * Number of threads used by the goals that work in parallel. Zero or
+     * less means one thread per available processor.
+     */
+    @Parameter(property = "efaps.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Metrics of the current execution.
+     *
+     * @see #startPhase(String)
+     */
+    private ExecutionMetrics executionMetrics;
+
+    /**
+     * Repositories opened during the execution.
+     *
+     * @see #getRepository(File)
+     * @see #closeRepositories()
+     */
+    private RepositoryRegistry repositoryRegistry;
+
+    /**
+     * Jars opened during the execution.
+     *
+     * @see #getJarRegistry()
+     * @see #closeJars()
+     */
+    private JarRegistry jarRegistry;
+
     /**
      * Instantiates a new eFaps abstract mojo.
      */
@@ -138,6 +180,80 @@ public abstract class EFapsAbstractMojo
     {
     }
 
+    /**
+     * Executes the goal by calling {@link #doExecute()}. Afterwards the
+     * repositories and jars opened during the execution are closed, the digesters
+     * kept for the thread are released and the metrics are reported.
+     *
+     * @throws MojoExecutionException on error
+     * @throws MojoFailureException on failure
+     */
+    @Override
+    public final void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        executionMetrics = new ExecutionMetrics(getClass().getSimpleName());
+        boolean success = false;
+        try {
+            doExecute();
+            success = true;
+        } finally {
+            closeRepositories();
+            closeJars();
+            DigesterRegistry.release();
+            if (metrics) {
+                executionMetrics.log();
+                if (metricsFile != null) {
+                    executionMetrics.write(metricsFile, success);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the goal.
+     *
+     * @throws MojoExecutionException on error
+     * @throws MojoFailureException on failure
+     */
+    protected abstract void doExecute()
+        throws MojoExecutionException, MojoFailureException;
+
+    /**
+     * Gets the metrics of the current execution.
+     *
+     * @return the metrics
+     */
+    protected ExecutionMetrics getMetrics()
+    {
+        if (executionMetrics == null) {
+            executionMetrics = new ExecutionMetrics(getClass().getSimpleName());
+        }
+        return executionMetrics;
+    }
+
+    /**
+     * Start timing a phase of the execution. The returned timer must be
+     * closed at the end of the phase.
+     *
+     * @param phase name of the phase
+     * @return the timer
+     */
+    protected Timer startPhase(final String phase)
+    {
+        return getMetrics().start(phase);
+    }
+
+    /**
+     * Gets the number of threads used by the goals that work in parallel.
+     *
+     * @return the number of threads, at least one
+     */
+    protected int getThreads()
+    {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * @todo better way instead of catching class not found exception (needed
      *       for the shell!)
@@ -151,7 +267,7 @@ public abstract class EFapsAbstractMojo
      */
     protected void init(final boolean _startupDB)
     {
-        try {
+        try (Timer timer = startPhase("db-startup")) {
             if (_startupDB) {
                 AppAccessHandler.init(null, new HashSet<>());
                 StartupDatabaseConnection.startup(type,
@@ -174,10 +290,12 @@ public abstract class EFapsAbstractMojo
     protected void reloadCache()
         throws EFapsException
     {
-        Context.begin();
-        RunLevel.init("shell");
-        RunLevel.execute();
-        abortTransaction();
+        try (Timer timer = startPhase("cache-reload")) {
+            Context.begin();
+            RunLevel.init("shell");
+            RunLevel.execute();
+            abortTransaction();
+        }
     }
 
     /**
@@ -256,79 +374,132 @@ public abstract class EFapsAbstractMojo
     protected FileInfo getFileInformation(final File _file,
                                           final boolean _evalRelated)
     {
-        FileInfo ret = null;
-        try {
-            ret = new FileInfo();
+        FileInfo ret = new FileInfo();
+        try (Timer timer = startPhase("git").addFiles(1)) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Searching FileInfo for: " + _file);
             }
             final Repository repository = getRepository(_file);
-            final Git git = new Git(repository);
-
-            final Iterator<RevCommit> iter = git.log().addPath(_file.getPath().replaceFirst(repository.getDirectory()
-                            .getParent() + "/", "")).call().iterator();
-
-            if (iter.hasNext()) {
-                final RevCommit commit = iter.next();
-                final PersonIdent authorIdent = commit.getAuthorIdent();
-                final Date authorDate = authorIdent.getWhen();
-                final TimeZone authorTimeZone = authorIdent.getTimeZone();
-                final DateTime dateTime = new DateTime(authorDate.getTime(), DateTimeZone.forTimeZone(authorTimeZone));
-                ret.setDate(dateTime).setRev(commit.getId().getName());
+            final String path = repository.getWorkTree().toPath().toAbsolutePath()
+                            .relativize(_file.toPath().toAbsolutePath()).toString();
+            final FileInfo fileInfo = new RevisionResolver(repository, getRepositoryRegistry().getReader(repository))
+                            .resolve("", Collections.singleton(path)).get(path);
+            if (fileInfo != null) {
+                ret = fileInfo;
             }
-        } catch (final GitAPIException | IOException e) {
+        } catch (final IOException e) {
             LOG.error("Catched", e);
         }
         return ret;
     }
 
     /**
-     * Gets the file informations.
+     * Gets the file informations. The history of the repository is walked
+     * only once for all files.
      *
-     * @param _file the file
-     * @param _filesSet the files set
-     * @param _evalRel the eval rel
+     * @param baseDir the base dir
+     * @param efapsDir the directory the files are relative to
+     * @param filesSet the files set
      * @return the file informations
+     * @see RevisionResolver
      */
     protected Map<String, FileInfo> getFileInformations(final File baseDir,
                                                         final File efapsDir,
                                                         final Set<String> filesSet)
     {
-        final Map<String, FileInfo> ret = new TreeMap<>();
-        try {
-            final var relativePath = baseDir.toPath().relativize(efapsDir.toPath());
+        return getFileInformations(baseDir, efapsDir, filesSet, null);
+    }
 
+    /**
+     * Gets the file informations using a revision cache stored in a file.
+     * Only the files changed since the cache was written are resolved
+     * against the history again.
+     *
+     * @param baseDir the base dir
+     * @param efapsDir the directory the files are relative to
+     * @param filesSet the files set
+     * @param cacheFile the file of the revision cache, null to not use a cache
+     * @return the file informations
+     * @see RevisionCache
+     */
+    protected Map<String, FileInfo> getFileInformations(final File baseDir,
+                                                        final File efapsDir,
+                                                        final Set<String> filesSet,
+                                                        final File cacheFile)
+    {
+        final Map<String, FileInfo> ret = new TreeMap<>();
+        try (Timer timer = startPhase("git").addFiles(filesSet.size())) {
             final Repository repository = getRepository(baseDir);
-            try (var git = new Git(repository)) {
-                for (final var file : filesSet) {
-                    final var gitLogs = git.log()
-                                    .addPath(relativePath.toString() + "/" + file)
-                                    .setMaxCount(1)
-                                    .call()
-                                    .iterator();
-                    if (gitLogs.hasNext()) {
-                        final var commit = gitLogs.next();
-                        final var authorIdent = commit.getAuthorIdent();
-                        final var authorDate = authorIdent.getWhen();
-                        final var authorTimeZone = authorIdent.getTimeZone();
-                        final var dateTime = new DateTime(authorDate.getTime(),
-                                        DateTimeZone.forTimeZone(authorTimeZone));
-                        ret.put(file, new FileInfo().setDate(dateTime).setRev(commit.getId().getName()));
-                        LOG.info("Added: {} - {}", file, commit.getId().getName());
-                    } else {
-                        LOG.warn("Could not find any commit for: {}", file);
-                        ret.put(file, new FileInfo().setDate(new DateTime()).setRev("-"));
-                    }
-                }
-            } catch (final GitAPIException e) {
-
+            final var relativePath = repository.getWorkTree().toPath().toAbsolutePath()
+                            .relativize(efapsDir.toPath().toAbsolutePath());
+            final RevisionCache cache = cacheFile == null ? null : RevisionCache.read(cacheFile);
+            final Map<String, FileInfo> resolved = new RevisionResolver(repository,
+                            getRepositoryRegistry().getReader(repository))
+                                .resolve(relativePath.toString(), filesSet, cache);
+            if (cache != null) {
+                cache.write(cacheFile);
             }
+            addFileInformations(ret, filesSet, resolved);
         } catch (final IOException e) {
             LOG.error("Catched IOException on accesssing repository", e);
         }
         return ret;
     }
 
+    /**
+     * Gets the file informations without walking the history. The revision
+     * is the id of the blob of the file in the index, the date is the one
+     * of HEAD.
+     *
+     * @param baseDir the base dir
+     * @param efapsDir the directory the files are relative to
+     * @param filesSet the files set
+     * @return the file informations
+     * @see RevisionResolver#resolveBlobs(String, java.util.Collection)
+     */
+    protected Map<String, FileInfo> getBlobInformations(final File baseDir,
+                                                        final File efapsDir,
+                                                        final Set<String> filesSet)
+    {
+        final Map<String, FileInfo> ret = new TreeMap<>();
+        try (Timer timer = startPhase("git").addFiles(filesSet.size())) {
+            final Repository repository = getRepository(baseDir);
+            final var relativePath = repository.getWorkTree().toPath().toAbsolutePath()
+                            .relativize(efapsDir.toPath().toAbsolutePath());
+            final Map<String, FileInfo> resolved = new RevisionResolver(repository,
+                            getRepositoryRegistry().getReader(repository))
+                                .resolveBlobs(relativePath.toString(), filesSet);
+            addFileInformations(ret, filesSet, resolved);
+        } catch (final IOException e) {
+            LOG.error("Catched IOException on accesssing repository", e);
+        }
+        return ret;
+    }
+
+    /**
+     * Add the resolved file informations to the given map. Files that could
+     * not be resolved get the current date and "-" as revision.
+     *
+     * @param fileInfos the map to add to
+     * @param filesSet the files set
+     * @param resolved the resolved file informations
+     */
+    private void addFileInformations(final Map<String, FileInfo> fileInfos,
+                                     final Set<String> filesSet,
+                                     final Map<String, FileInfo> resolved)
+    {
+        for (final var file : filesSet) {
+            final FileInfo fileInfo = resolved.get(file);
+            if (fileInfo == null) {
+                LOG.warn("Could not find any commit for: {}", file);
+                fileInfos.put(file, new FileInfo().setDate(new DateTime()).setRev("-"));
+            } else {
+                fileInfos.put(file, fileInfo);
+                LOG.info("Added: {} - {}", file, fileInfo.getRev());
+            }
+        }
+    }
+
     /**
      * Eval related.
      *
@@ -340,21 +511,14 @@ public abstract class EFapsAbstractMojo
     {
         try {
             if (_file.exists() && FilenameUtils.isExtension(_file.getName(), "xml")) {
-                final DigesterLoader loader = DigesterLoader.newLoader(new FromAnnotationsRuleModule()
-                {
-
-                    @Override
-                    protected void configureRules()
-                    {
-                        bindRulesFrom(DBPropertiesCI.class);
-                        bindRulesFrom(ImageCI.class);
-                        bindRulesFrom(JasperImageCI.class);
-                    }
-                });
-                final Digester digester = loader.newDigester();
-                final InputStream stream = new FileInputStream(_file);
-                final InputSource source = new InputSource(stream);
-                final IRelatedFiles item = digester.parse(source);
+                final Class<?>[] ciClasses = { DBPropertiesCI.class, ImageCI.class, JasperImageCI.class };
+                final InputStream stream = new BufferedInputStream(new FileInputStream(_file));
+                final IRelatedFiles item;
+                if (RootElement.isBound(RootElement.sniff(stream), ciClasses)) {
+                    item = DigesterRegistry.parse(new InputSource(stream), ciClasses);
+                } else {
+                    item = null;
+                }
                 if (item != null) {
                     for (final String tmpFile : item.getFiles()) {
                         final String path = FilenameUtils.normalize(_file.getParent() + "/" + tmpFile);
@@ -375,17 +539,67 @@ public abstract class EFapsAbstractMojo
     }
 
     /**
-     * Gets the repository.
+     * Gets the repository a file belongs to. The repository is opened only
+     * once per execution and closed by {@link #closeRepositories()} at the
+     * end of the execution.
      *
-     * @param _file the file
+     * @param file the file
      * @return the repository
      * @throws IOException Signals that an I/O exception has occurred.
      */
     protected Repository getRepository(final File file)
         throws IOException
     {
-        final RepositoryBuilder builder = new RepositoryBuilder();
-        return builder.setWorkTree(file).readEnvironment().findGitDir().build();
+        return getRepositoryRegistry().getRepository(file);
+    }
+
+    /**
+     * Gets the registry of the repositories opened during the execution.
+     *
+     * @return the repository registry
+     */
+    protected RepositoryRegistry getRepositoryRegistry()
+    {
+        if (repositoryRegistry == null) {
+            repositoryRegistry = new RepositoryRegistry();
+        }
+        return repositoryRegistry;
+    }
+
+    /**
+     * Close the repositories opened during the execution.
+     */
+    protected void closeRepositories()
+    {
+        if (repositoryRegistry != null) {
+            repositoryRegistry.close();
+            repositoryRegistry = null;
+        }
+    }
+
+    /**
+     * Gets the registry of the jars opened during the execution. Files in
+     * jars should be read through it instead of opening a connection.
+     *
+     * @return the jar registry
+     */
+    protected synchronized JarRegistry getJarRegistry()
+    {
+        if (jarRegistry == null) {
+            jarRegistry = new JarRegistry();
+        }
+        return jarRegistry;
+    }
+
+    /**
+     * Close the jars opened during the execution.
+     */
+    protected synchronized void closeJars()
+    {
+        if (jarRegistry != null) {
+            jarRegistry.close();
+            jarRegistry = null;
+        }
     }
 
     /**
@@ -0,0 +1,385 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Metrics of one execution of a mojo. The time spent is measured for named
+ * phases, together with the number of files and bytes processed in each
+ * phase. A phase can be entered several times, also from different threads,
+ * the values are summed up.
+ *
+ * <pre>
+ * try (Timer timer = metrics.start("parse")) {
+ *     ...
+ *     timer.addFile(size);
+ * }
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public class ExecutionMetrics
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutionMetrics.class);
+
+    /** Name of the execution. */
+    private final String name;
+
+    /** Start of the execution. */
+    private final DateTime start = new DateTime();
+
+    /** Start of the execution in nanoseconds. */
+    private final long startNanos = System.nanoTime();
+
+    /** The phases in the order they were started first. */
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    /**
+     * Instantiates new metrics.
+     *
+     * @param name the name of the execution
+     */
+    public ExecutionMetrics(final String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Gets the phase with the given name, creating it if needed.
+     *
+     * @param phaseName the phase name
+     * @return the phase
+     */
+    public synchronized Phase getPhase(final String phaseName)
+    {
+        return phases.computeIfAbsent(phaseName, Phase::new);
+    }
+
+    /**
+     * Start timing a phase.
+     *
+     * @param phaseName the phase name
+     * @return the timer, to be closed at the end of the phase
+     */
+    public Timer start(final String phaseName)
+    {
+        return new Timer(getPhase(phaseName));
+    }
+
+    /**
+     * Log a summary table of the phases.
+     */
+    public void log()
+    {
+        LOG.info("Metrics for {} ({} ms)", name, getDurationMillis());
+        LOG.info(String.format("%-24s %12s %8s %10s %14s", "Phase", "Time [ms]", "Calls", "Files", "Bytes"));
+        for (final Phase phase : getPhases()) {
+            LOG.info(String.format("%-24s %12d %8d %10d %14d", phase.getName(), phase.getMillis(),
+                            phase.getCalls(), phase.getFiles(), phase.getBytes()));
+        }
+    }
+
+    /**
+     * Write the metrics into a JSON file. The file contains one entry for
+     * each execution name, so that several goals of one build can report into
+     * the same file.
+     *
+     * @param file the file
+     * @param success was the execution successful
+     */
+    @SuppressWarnings("unchecked")
+    public void write(final File file,
+                      final boolean success)
+    {
+        try {
+            final ObjectMapper mapper = new ObjectMapper();
+            mapper.enable(SerializationFeature.INDENT_OUTPUT);
+            Map<String, Object> content = null;
+            if (file.exists()) {
+                try {
+                    content = mapper.readValue(file, LinkedHashMap.class);
+                } catch (final IOException e) {
+                    LOG.debug("Replacing unreadable metrics file: {}", file);
+                }
+            }
+            if (content == null) {
+                content = new LinkedHashMap<>();
+            }
+            content.put(name, toMap(success));
+            file.getParentFile().mkdirs();
+            mapper.writeValue(file, content);
+        } catch (final IOException e) {
+            LOG.warn("Could not write metrics to: {}", file, e);
+        }
+    }
+
+    /**
+     * Convert the metrics into a map used for the JSON report.
+     *
+     * @param success was the execution successful
+     * @return the map
+     */
+    protected Map<String, Object> toMap(final boolean success)
+    {
+        final Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put("start", start.toString());
+        ret.put("durationMs", getDurationMillis());
+        ret.put("success", success);
+        final List<Map<String, Object>> phaseList = new ArrayList<>();
+        for (final Phase phase : getPhases()) {
+            final Map<String, Object> phaseMap = new LinkedHashMap<>();
+            phaseMap.put("name", phase.getName());
+            phaseMap.put("durationMs", phase.getMillis());
+            phaseMap.put("calls", phase.getCalls());
+            phaseMap.put("files", phase.getFiles());
+            phaseMap.put("bytes", phase.getBytes());
+            final double seconds = phase.getNanos() / 1e9;
+            phaseMap.put("filesPerSecond", seconds > 0 ? phase.getFiles() / seconds : 0);
+            phaseMap.put("bytesPerSecond", seconds > 0 ? phase.getBytes() / seconds : 0);
+            phaseList.add(phaseMap);
+        }
+        ret.put("phases", phaseList);
+        return ret;
+    }
+
+    /**
+     * Gets the duration of the execution until now.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the phases.
+     *
+     * @return copy of the phases
+     */
+    public synchronized List<Phase> getPhases()
+    {
+        return new ArrayList<>(phases.values());
+    }
+
+    /**
+     * Values of one phase.
+     */
+    public static class Phase
+    {
+
+        /** The name. */
+        private final String name;
+
+        /** The time spent. */
+        private final LongAdder nanos = new LongAdder();
+
+        /** The number of times the phase was entered. */
+        private final LongAdder calls = new LongAdder();
+
+        /** The files processed. */
+        private final LongAdder files = new LongAdder();
+
+        /** The bytes processed. */
+        private final LongAdder bytes = new LongAdder();
+
+        /**
+         * Instantiates a new phase.
+         *
+         * @param name the name
+         */
+        public Phase(final String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Add a processed file.
+         *
+         * @param size size of the file in bytes, negative if unknown
+         */
+        public void addFile(final long size)
+        {
+            files.increment();
+            if (size > 0) {
+                bytes.add(size);
+            }
+        }
+
+        /**
+         * Add processed files of unknown size.
+         *
+         * @param count the number of files
+         */
+        public void addFiles(final long count)
+        {
+            files.add(count);
+        }
+
+        /**
+         * Add processed bytes without counting a file.
+         *
+         * @param size the size in bytes
+         */
+        public void addBytes(final long size)
+        {
+            bytes.add(size);
+        }
+
+        /**
+         * Gets the name.
+         *
+         * @return the name
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Gets the time spent.
+         *
+         * @return the time in nanoseconds
+         */
+        public long getNanos()
+        {
+            return nanos.sum();
+        }
+
+        /**
+         * Gets the time spent.
+         *
+         * @return the time in milliseconds
+         */
+        public long getMillis()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(getNanos());
+        }
+
+        /**
+         * Gets the number of times the phase was entered.
+         *
+         * @return the calls
+         */
+        public long getCalls()
+        {
+            return calls.sum();
+        }
+
+        /**
+         * Gets the number of files.
+         *
+         * @return the files
+         */
+        public long getFiles()
+        {
+            return files.sum();
+        }
+
+        /**
+         * Gets the number of bytes.
+         *
+         * @return the bytes
+         */
+        public long getBytes()
+        {
+            return bytes.sum();
+        }
+    }
+
+    /**
+     * Measures the time of one pass through a phase.
+     */
+    public static class Timer
+        implements AutoCloseable
+    {
+
+        /** The phase. */
+        private final Phase phase;
+
+        /** The start. */
+        private final long startNanos = System.nanoTime();
+
+        /**
+         * Instantiates a new timer.
+         *
+         * @param phase the phase
+         */
+        protected Timer(final Phase phase)
+        {
+            this.phase = phase;
+        }
+
+        /**
+         * Add a processed file to the phase.
+         *
+         * @param size size of the file in bytes, negative if unknown
+         * @return this timer
+         */
+        public Timer addFile(final long size)
+        {
+            phase.addFile(size);
+            return this;
+        }
+
+        /**
+         * Add processed files of unknown size to the phase.
+         *
+         * @param count the number of files
+         * @return this timer
+         */
+        public Timer addFiles(final long count)
+        {
+            phase.addFiles(count);
+            return this;
+        }
+
+        /**
+         * Add processed bytes to the phase.
+         *
+         * @param size the size in bytes
+         * @return this timer
+         */
+        public Timer addBytes(final long size)
+        {
+            phase.addBytes(size);
+            return this;
+        }
+
+        @Override
+        public void close()
+        {
+            phase.nanos.add(System.nanoTime() - startNanos);
+            phase.calls.increment();
+        }
+    }
+}
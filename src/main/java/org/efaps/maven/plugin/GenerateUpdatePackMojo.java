@@ -15,27 +15,30 @@
  */
 package org.efaps.maven.plugin;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipUtils;
-import org.apache.commons.digester3.Digester;
-import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
-import org.apache.commons.digester3.binder.DigesterLoader;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -44,20 +47,25 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.maven.plugin.install.AbstractEFapsInstallMojo;
 import org.efaps.maven.plugin.install.digester.AccessSetCI;
+import org.efaps.maven.plugin.install.digester.CIExtractor;
+import org.efaps.maven.plugin.install.digester.CIExtractor.Extent;
 import org.efaps.maven.plugin.install.digester.CommandCI;
 import org.efaps.maven.plugin.install.digester.DBPropertiesCI;
 import org.efaps.maven.plugin.install.digester.FormCI;
 import org.efaps.maven.plugin.install.digester.IBaseCI;
 import org.efaps.maven.plugin.install.digester.IRelatedFiles;
 import org.efaps.maven.plugin.install.digester.ImageCI;
+import org.efaps.maven.plugin.install.digester.JarCIIndex;
 import org.efaps.maven.plugin.install.digester.JasperImageCI;
 import org.efaps.maven.plugin.install.digester.MenuCI;
 import org.efaps.maven.plugin.install.digester.ModuleCI;
 import org.efaps.maven.plugin.install.digester.MsgPhraseCI;
 import org.efaps.maven.plugin.install.digester.NumGenCI;
 import org.efaps.maven.plugin.install.digester.RoleCI;
+import org.efaps.maven.plugin.install.digester.RootElement;
 import org.efaps.maven.plugin.install.digester.SQLTableCI;
 import org.efaps.maven.plugin.install.digester.SearchCI;
 import org.efaps.maven.plugin.install.digester.StatusGroupCI;
@@ -74,8 +82,6 @@ import org.efaps.update.version.Dependency;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -90,6 +96,10 @@ public class GenerateUpdatePackMojo
     extends AbstractEFapsInstallMojo
 {
     private static final Logger LOG = LoggerFactory.getLogger(GenerateUpdatePackMojo.class);
+
+    /** Pattern for the uuid of a JasperReport. */
+    private static final Pattern JRXML_UUID = Pattern.compile("uuid=\"([0-9abcdef-]*)\"");
+
     /**
      * The Enum UpdateGroup.
      *
@@ -98,13 +108,40 @@ public class GenerateUpdatePackMojo
     public enum UpdateGroup
     {
         /** All CIItems. */
-        ALL,
+        ALL(TypeCI.class, StatusGroupCI.class, FormCI.class, TableCI.class, MsgPhraseCI.class, NumGenCI.class,
+                        CommandCI.class, MenuCI.class, ModuleCI.class, SearchCI.class, SQLTableCI.class,
+                        RoleCI.class, AccessSetCI.class, DBPropertiesCI.class, ImageCI.class, JasperImageCI.class),
         /** Type, StatusGroup, SQLTable. */
-        DATAMODEL,
+        DATAMODEL(TypeCI.class, StatusGroupCI.class, SQLTableCI.class),
         /** CIITems belongin to UserInterface. */
-        UI,
+        UI(FormCI.class, TableCI.class, CommandCI.class, MenuCI.class, ModuleCI.class, SearchCI.class,
+                        DBPropertiesCI.class, ImageCI.class, JasperImageCI.class),
         /** PROGRAM ITEMS. */
         PROGRAM;
+
+        /** The CI classes of the group. */
+        private final Class<?>[] ciClasses;
+
+        /**
+         * Instantiates a new update group.
+         *
+         * @param _ciClasses the CI classes of the group
+         */
+        UpdateGroup(final Class<?>... _ciClasses)
+        {
+            ciClasses = _ciClasses;
+        }
+
+        /**
+         * Gets the CI classes of the group.
+         *
+         * @return the CI classes
+         * @see CIExtractor
+         */
+        public Class<?>[] getCIClasses()
+        {
+            return ciClasses.clone();
+        }
     }
 
     /** The project. */
@@ -129,8 +166,27 @@ public class GenerateUpdatePackMojo
     @Parameter(property = "updatePack.compress", alias = "updatePack.compress", defaultValue = "true")
     private boolean compress;
 
+    /**
+     * Number of threads used to compress the pack. Zero or less means the
+     * number of threads of the goals that work in parallel.
+     */
+    @Parameter(property = "updatePack.compressThreads", alias = "updatePack.compressThreads", defaultValue = "0")
+    private int compressThreads;
+
+    /** Size in KiB of the blocks that are compressed in parallel. */
+    @Parameter(property = "updatePack.compressBlockSize", alias = "updatePack.compressBlockSize",
+                    defaultValue = "128")
+    private int compressBlockSize;
+
+    /** Extractor for the CI classes of the group, per worker thread. */
+    private final ThreadLocal<CIExtractor> extractor = ThreadLocal.withInitial(
+                    () -> new CIExtractor(group.getCIClasses()));
+
+    /** Buffer to copy the content of files into the tar. */
+    private final byte[] copyBuffer = new byte[64 * 1024];
+
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException, MojoFailureException
     {
 
@@ -142,229 +198,425 @@ public class GenerateUpdatePackMojo
                 final FileOutputStream out = new FileOutputStream(new File(targetDirectory,
                                 compress ? gzFileName : tarFileName));
                 final TarArchiveOutputStream tarOut = new TarArchiveOutputStream(
-                                compress ? new GzipCompressorOutputStream(out) : out);
+                                compress ? new ParallelGzipOutputStream(out,
+                                                compressThreads > 0 ? compressThreads : getThreads(),
+                                                compressBlockSize * 1024) : out);
             ) {
 
             final Application app = Application.getApplication(getVersionFile().toURI().toURL(),
                             getEFapsDir().toURI().toURL(), getClasspathElements());
 
-            final DigesterLoader loader = DigesterLoader.newLoader(new FromAnnotationsRuleModule()
-            {
-
-                @Override
-                protected void configureRules()
-                {
-                    switch (group) {
-                        case PROGRAM:
-                            break;
-                        case DATAMODEL:
-                            bindRulesFrom(TypeCI.class);
-                            bindRulesFrom(StatusGroupCI.class);
-                            bindRulesFrom(SQLTableCI.class);
-                            break;
-                        case UI:
-                            bindRulesFrom(FormCI.class);
-                            bindRulesFrom(TableCI.class);
-                            bindRulesFrom(CommandCI.class);
-                            bindRulesFrom(MenuCI.class);
-                            bindRulesFrom(ModuleCI.class);
-                            bindRulesFrom(SearchCI.class);
-                            bindRulesFrom(DBPropertiesCI.class);
-                            bindRulesFrom(ImageCI.class);
-                            bindRulesFrom(JasperImageCI.class);
-                            break;
-                        case ALL:
-                        default:
-                            bindRulesFrom(TypeCI.class);
-                            bindRulesFrom(StatusGroupCI.class);
-                            bindRulesFrom(FormCI.class);
-                            bindRulesFrom(TableCI.class);
-                            bindRulesFrom(MsgPhraseCI.class);
-                            bindRulesFrom(NumGenCI.class);
-                            bindRulesFrom(CommandCI.class);
-                            bindRulesFrom(MenuCI.class);
-                            bindRulesFrom(ModuleCI.class);
-                            bindRulesFrom(SearchCI.class);
-                            bindRulesFrom(SQLTableCI.class);
-                            bindRulesFrom(RoleCI.class);
-                            bindRulesFrom(AccessSetCI.class);
-                            bindRulesFrom(DBPropertiesCI.class);
-                            bindRulesFrom(ImageCI.class);
-                            bindRulesFrom(JasperImageCI.class);
-                            break;
-                    }
-                }
-            });
-
-            final Map<String, RevItem> mapping = new HashMap<>();
-            for (final Dependency dependency : app.getDependencies()) {
-                dependency.resolve();
-                final Application dependApp = Application.getApplicationFromJarFile(
-                                dependency.getJarFile(), getClasspathElements());
-                mapping.putAll(addItems(dependApp, tarOut, loader));
-            }
+            final List<Dependency> dependencies = new ArrayList<>(app.getDependencies());
             final Dependency dependency = new Dependency();
             dependency.setArtifactId(project.getArtifactId());
             dependency.setGroupId(project.getGroupId());
             dependency.setVersion(project.getVersion());
-            dependency.resolve();
-
-            final Application currentApp = Application.getApplicationFromJarFile(
-                            dependency.getJarFile(), getClasspathElements());
-
-            mapping.putAll(addItems(currentApp, tarOut, loader));
-
-            final ObjectMapper mapper = new ObjectMapper();
-            mapper.enable(SerializationFeature.INDENT_OUTPUT);
-            mapper.registerModule(new JodaModule());
-            final File revJson = new File(targetDirectory, "revisions.json");
-            mapper.writeValue(revJson, mapping.values());
-
-            final byte[] content = IOUtils.toByteArray(new FileInputStream(revJson));
-            final TarArchiveEntry entry = new TarArchiveEntry("revisions.json");
-            entry.setSize(content.length);
-            tarOut.putArchiveEntry(entry);
-            tarOut.write(content);
-            tarOut.closeArchiveEntry();
+            dependencies.add(dependency);
+
+            final Map<String, RevItem> mapping = addItems(dependencies, tarOut);
+
+            try (Timer timer = startPhase("revisions")) {
+                final ObjectMapper mapper = new ObjectMapper();
+                mapper.enable(SerializationFeature.INDENT_OUTPUT);
+                mapper.registerModule(new JodaModule());
+                final File revJson = new File(targetDirectory, "revisions.json");
+                mapper.writeValue(revJson, mapping.values());
+                addEntry(tarOut, "revisions.json", revJson.toURI().toURL());
+                timer.addFile(revJson.length());
+            }
         } catch (final Exception e) {
             throw new MojoExecutionException("Could not execute SourceInstall script", e);
         }
     }
 
     /**
-     * Adds the items.
+     * Adds the items of the applications and measures them as phase "pack".
+     * The bytes are the ones written to the tar before compression.<br/>
+     * The applications are resolved one after another. Their files are
+     * read and their identifiers evaluated in parallel, while the calling
+     * thread writes the results in the order of the applications and files,
+     * so that the pack does not depend on the threads. The number of files
+     * in work is bounded, so the next application is resolved while the
+     * last files of the previous one are still worked on. The resolution is
+     * measured as phase "dependencies" only.
      *
-     * @param app the app
-     * @param tarOut the tar out
-     * @param loader the loader
+     * @param _dependencies the dependencies of the applications
+     * @param _tarOut the tar out
      * @return the map
      * @throws IOException Signals that an I/O exception has occurred.
-     * @throws SAXException the SAX exception
-     * @throws URISyntaxException the URI syntax exception
      * @throws InstallationException the installation exception
+     * @throws InterruptedException if interrupted
+     * @throws ExecutionException on error collecting an item
+     * @see #collect(Application, JarCIIndex, InstallFile)
      */
-    private Map<String, RevItem> addItems(final Application app,
-                                          final TarArchiveOutputStream tarOut,
-                                          final DigesterLoader loader)
-        throws IOException, SAXException, URISyntaxException, InstallationException
+    private Map<String, RevItem> addItems(final List<Dependency> _dependencies,
+                                          final TarArchiveOutputStream _tarOut)
+        throws IOException, InstallationException, InterruptedException, ExecutionException
     {
-        final List<InstallFile> files = app.getInstall().getFiles();
         final Map<String, RevItem> ret = new HashMap<>();
-        for (final InstallFile file : files) {
-            if (file.getType() == null) {
-                LOG.error("File without FileType: {}", file);
-            } else {
-                switch (file.getType()) {
-                    case XML:
-                        final Digester digester = loader.newDigester();
-                        final URLConnection connection = file.getUrl().openConnection();
-                        connection.setUseCaches(false);
-                        final InputStream stream = connection.getInputStream();
-                        final InputSource source = new InputSource(stream);
-                        final IBaseCI item = digester.parse(source);
-                        stream.close();
-                        if (item != null && item.getUuid() != null) {
-                            ret.put(item.getUuid(), new RevItem(FileType.XML, item.getUuid(), app.getApplication(),
-                                            file.getRevision(), file.getDate()));
-                            final byte[] content = IOUtils.toByteArray(file.getUrl().openConnection().getInputStream());
-                            final TarArchiveEntry entry = new TarArchiveEntry(item.getUuid());
-                            entry.setSize(content.length);
-                            tarOut.putArchiveEntry(entry);
-                            tarOut.write(content);
-                            tarOut.closeArchiveEntry();
-                            if (item instanceof IRelatedFiles) {
-                                for (final String tmpFile : ((IRelatedFiles) item).getFiles()) {
-                                    final String urlStr = file.getUrl().toString();
-                                    final URL url = new URL(urlStr.substring(0, urlStr.lastIndexOf("/") + 1)
-                                                    + tmpFile);
-                                    final URLConnection relCon = url.openConnection();
-                                    final byte[] relContent = IOUtils.toByteArray(relCon.getInputStream());
-                                    final TarArchiveEntry relEntry = new TarArchiveEntry(tmpFile);
-                                    relEntry.setSize(relContent.length);
-                                    tarOut.putArchiveEntry(relEntry);
-                                    tarOut.write(relContent);
-                                    tarOut.closeArchiveEntry();
-                                }
-                            }
+        final int maxPending = 4 * getThreads();
+        final Deque<Future<PackItem>> pending = new ArrayDeque<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(getThreads());
+        try {
+            for (final Dependency dependency : _dependencies) {
+                final Application app;
+                final JarCIIndex jarIndex;
+                try (Timer timer = startPhase("dependencies")) {
+                    dependency.resolve();
+                    app = Application.getApplicationFromJarFile(dependency.getJarFile(), getClasspathElements());
+                    jarIndex = JarCIIndex.read(getJarRegistry().getJarFile(dependency.getJarFile()));
+                    timer.addFile(dependency.getJarFile().length());
+                }
+                // the resolution of the applications is not part of the pack phase
+                try (Timer timer = startPhase("pack")) {
+                    final long written = _tarOut.getBytesWritten();
+                    int files = 0;
+                    for (final InstallFile file : app.getInstall().getFiles()) {
+                        pending.add(executor.submit(() -> collect(app, jarIndex, file)));
+                        while (pending.size() > maxPending) {
+                            files += write(pending.poll().get(), _tarOut, ret);
                         }
-                        break;
-                    case JAVA:
-                        if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
-                            final ESJPImporter importer = new ESJPImporter(file);
-                            final String identifier = importer.getProgramName();
+                    }
+                    timer.addFiles(files).addBytes(_tarOut.getBytesWritten() - written);
+                }
+            }
+            try (Timer timer = startPhase("pack")) {
+                final long written = _tarOut.getBytesWritten();
+                int files = 0;
+                while (!pending.isEmpty()) {
+                    files += write(pending.poll().get(), _tarOut, ret);
+                }
+                timer.addFiles(files).addBytes(_tarOut.getBytesWritten() - written);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return ret;
+    }
 
-                            ret.put(identifier, new RevItem(FileType.JAVA, identifier, app.getApplication(),
-                                            file.getRevision(), file.getDate()));
-                            final byte[] content = IOUtils.toByteArray(file.getUrl().openConnection().getInputStream());
-                            final TarArchiveEntry entry = new TarArchiveEntry(
-                                            identifier.replace('.', '/') + ".java");
-                            entry.setSize(content.length);
-                            tarOut.putArchiveEntry(entry);
-                            tarOut.write(content);
-                            tarOut.closeArchiveEntry();
-                        }
-                        break;
-                    case CSS:
-                        if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
-                            final CSSImporter importer = new CSSImporter(file);
-                            final String identifier = importer.getProgramName();
+    /**
+     * Write an item to the tar and register its revision.
+     *
+     * @param _item the item, may be null
+     * @param _tarOut the tar out
+     * @param _revItems the revisions by identifier
+     * @return the number of items written
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int write(final PackItem _item,
+                      final TarArchiveOutputStream _tarOut,
+                      final Map<String, RevItem> _revItems)
+        throws IOException
+    {
+        int ret = 0;
+        if (_item != null) {
+            _revItems.put(_item.getRevItem().getIdentifier(), _item.getRevItem());
+            for (final PackEntry entry : _item.getEntries()) {
+                if (entry.getContent() == null) {
+                    addEntry(_tarOut, entry.getName(), entry.getUrl());
+                } else {
+                    addEntry(_tarOut, entry.getName(), entry.getContent());
+                }
+            }
+            ret = 1;
+        }
+        return ret;
+    }
 
-                            ret.put(identifier, new RevItem(FileType.CSS, identifier, app.getApplication(),
-                                            file.getRevision(), file.getDate()));
-                            final byte[] content = IOUtils.toByteArray(file.getUrl().openConnection().getInputStream());
-                            final TarArchiveEntry entry = new TarArchiveEntry(
-                                            StringUtils.removeEnd(identifier, ".css").replace('.', '/') + ".css");
-                            entry.setSize(content.length);
-                            tarOut.putArchiveEntry(entry);
-                            tarOut.write(content);
-                            tarOut.closeArchiveEntry();
+    /**
+     * Collects the item of a file: its revision and the entries for the tar.
+     * Called by the workers, so it must not write to the tar.
+     *
+     * @param app the app
+     * @param jarIndex the CI index of the jar of the app, may be null
+     * @param file the file
+     * @return the item, null if the file is not part of the pack
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws XMLStreamException on error reading a CI file
+     * @throws InstallationException the installation exception
+     */
+    private PackItem collect(final Application app,
+                             final JarCIIndex jarIndex,
+                             final InstallFile file)
+        throws IOException, XMLStreamException, InstallationException
+    {
+        PackItem ret = null;
+        if (file.getType() == null) {
+            LOG.error("File without FileType: {}", file);
+        } else {
+            switch (file.getType()) {
+                case XML:
+                    final IBaseCI item;
+                    // the content is read once and used to parse and for the tar entry
+                    byte[] xmlContent = null;
+                    if (jarIndex != null && jarIndex.contains(file.getUrl())) {
+                        item = extractor.get().isBound(jarIndex.getRoot(file.getUrl()))
+                                        ? jarIndex.getItem(file.getUrl()) : null;
+                    } else {
+                        xmlContent = getJarRegistry().read(file.getUrl());
+                        final InputStream stream = new ByteArrayInputStream(xmlContent);
+                        if (extractor.get().isBound(RootElement.sniff(stream))) {
+                            // only the uuid and the related files are needed
+                            item = extractor.get().extract(stream, Extent.HEADER);
+                        } else {
+                            item = null;
                         }
-                        break;
-                    case JS:
-                        if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
-                            final JavaScriptImporter importer = new JavaScriptImporter(file);
-                            final String identifier = importer.getProgramName();
-
-                            ret.put(identifier, new RevItem(FileType.JS, identifier, app.getApplication(),
-                                            file.getRevision(), file.getDate()));
-                            final byte[] content = IOUtils.toByteArray(file.getUrl().openConnection().getInputStream());
-                            final TarArchiveEntry entry = new TarArchiveEntry(
-                                            StringUtils.removeEnd(identifier, ".js").replace('.', '/') + ".js");
-                            entry.setSize(content.length);
-                            tarOut.putArchiveEntry(entry);
-                            tarOut.write(content);
-                            tarOut.closeArchiveEntry();
+                    }
+                    if (item != null && item.getUuid() != null) {
+                        ret = new PackItem(new RevItem(FileType.XML, item.getUuid(), app.getApplication(),
+                                        file.getRevision(), file.getDate()));
+                        if (xmlContent == null) {
+                            ret.add(item.getUuid(), file.getUrl());
+                        } else {
+                            ret.add(item.getUuid(), xmlContent);
                         }
-                        break;
-                    case JRXML:
-                        if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
-                            final var strContent = IOUtils.toString(file.getUrl(), StandardCharsets.UTF_8);
-                            final var pattern = Pattern.compile("uuid=\"([0-9abcdef-]*)\"");
-                            final var matcher = pattern.matcher(strContent);
-                            if (matcher.find()) {
-
-                                final String identifier = matcher.group(1);
-
-                                ret.put(identifier, new RevItem(FileType.JRXML, identifier, app.getApplication(),
-                                                file.getRevision(), file.getDate()));
-                                final byte[] content = IOUtils.toByteArray(file.getUrl().openConnection().getInputStream());
-                                final TarArchiveEntry entry = new TarArchiveEntry(identifier + ".jrxml");
-                                entry.setSize(content.length);
-                                tarOut.putArchiveEntry(entry);
-                                tarOut.write(content);
-                                tarOut.closeArchiveEntry();
+                        if (item instanceof IRelatedFiles) {
+                            for (final String tmpFile : ((IRelatedFiles) item).getFiles()) {
+                                final String urlStr = file.getUrl().toString();
+                                final URL url = new URL(urlStr.substring(0, urlStr.lastIndexOf("/") + 1)
+                                                + tmpFile);
+                                ret.add(tmpFile, url);
                             }
                         }
-                        break;
-                    default:
-                        LOG.debug("Ignoring: {}", file);
-                        break;
-                }
+                    }
+                    break;
+                case JAVA:
+                    // the entries of programs are the unchanged files, not
+                    // the code as read by the importers
+                    if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
+                        final ESJPImporter importer = new ESJPImporter(file);
+                        final String identifier = importer.getProgramName();
+
+                        ret = new PackItem(new RevItem(FileType.JAVA, identifier, app.getApplication(),
+                                        file.getRevision(), file.getDate()));
+                        ret.add(identifier.replace('.', '/') + ".java", file.getUrl());
+                    }
+                    break;
+                case CSS:
+                    if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
+                        final CSSImporter importer = new CSSImporter(file);
+                        final String identifier = importer.getProgramName();
+
+                        ret = new PackItem(new RevItem(FileType.CSS, identifier, app.getApplication(),
+                                        file.getRevision(), file.getDate()));
+                        ret.add(StringUtils.removeEnd(identifier, ".css").replace('.', '/') + ".css", file.getUrl());
+                    }
+                    break;
+                case JS:
+                    if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
+                        final JavaScriptImporter importer = new JavaScriptImporter(file);
+                        final String identifier = importer.getProgramName();
+
+                        ret = new PackItem(new RevItem(FileType.JS, identifier, app.getApplication(),
+                                        file.getRevision(), file.getDate()));
+                        ret.add(StringUtils.removeEnd(identifier, ".js").replace('.', '/') + ".js", file.getUrl());
+                    }
+                    break;
+                case JRXML:
+                    if (UpdateGroup.ALL.equals(group) || UpdateGroup.PROGRAM.equals(group)) {
+                        final byte[] content = getJarRegistry().read(file.getUrl());
+                        final var strContent = new String(content, StandardCharsets.UTF_8);
+                        final var matcher = JRXML_UUID.matcher(strContent);
+                        if (matcher.find()) {
+
+                            final String identifier = matcher.group(1);
+
+                            ret = new PackItem(new RevItem(FileType.JRXML, identifier, app.getApplication(),
+                                            file.getRevision(), file.getDate()));
+                            ret.add(identifier + ".jrxml", content);
+                        }
+                    }
+                    break;
+                default:
+                    LOG.debug("Ignoring: {}", file);
+                    break;
             }
         }
         return ret;
     }
 
+
+    /**
+     * Adds an entry to the tar that is streamed from a URL through a reused
+     * buffer, so that large files are not held in memory. Only if the size
+     * of the content can not be known beforehand, the content is read
+     * completely.
+     *
+     * @param _tarOut the tar out
+     * @param _name name of the entry
+     * @param _url URL of the content
+     * @throws IOException on error
+     */
+    private void addEntry(final TarArchiveOutputStream _tarOut,
+                          final String _name,
+                          final URL _url)
+        throws IOException
+    {
+        final long size = getJarRegistry().getSize(_url);
+        if (size < 0) {
+            addEntry(_tarOut, _name, getJarRegistry().read(_url));
+        } else {
+            final TarArchiveEntry entry = new TarArchiveEntry(_name);
+            entry.setSize(size);
+            _tarOut.putArchiveEntry(entry);
+            try (InputStream stream = getJarRegistry().openStream(_url)) {
+                IOUtils.copyLarge(stream, _tarOut, copyBuffer);
+            }
+            _tarOut.closeArchiveEntry();
+        }
+    }
+
+    /**
+     * Adds an entry to the tar.
+     *
+     * @param _tarOut the tar out
+     * @param _name name of the entry
+     * @param _content the content
+     * @throws IOException on error
+     */
+    private void addEntry(final TarArchiveOutputStream _tarOut,
+                          final String _name,
+                          final byte[] _content)
+        throws IOException
+    {
+        final TarArchiveEntry entry = new TarArchiveEntry(_name);
+        entry.setSize(_content.length);
+        _tarOut.putArchiveEntry(entry);
+        _tarOut.write(_content);
+        _tarOut.closeArchiveEntry();
+    }
+
+    /**
+     * Item of the pack collected by a worker: the revision and the entries
+     * for the tar.
+     */
+    private static final class PackItem
+    {
+
+        /** The revision. */
+        private final RevItem revItem;
+
+        /** The entries for the tar. */
+        private final List<PackEntry> entries = new ArrayList<>();
+
+        /**
+         * Instantiates a new pack item.
+         *
+         * @param _revItem the revision
+         */
+        PackItem(final RevItem _revItem)
+        {
+            revItem = _revItem;
+        }
+
+        /**
+         * Add an entry with its content.
+         *
+         * @param _name name of the entry
+         * @param _content the content
+         */
+        void add(final String _name,
+                 final byte[] _content)
+        {
+            entries.add(new PackEntry(_name, _content, null));
+        }
+
+        /**
+         * Add an entry that is streamed from a URL when it is written.
+         *
+         * @param _name name of the entry
+         * @param _url URL of the content
+         */
+        void add(final String _name,
+                 final URL _url)
+        {
+            entries.add(new PackEntry(_name, null, _url));
+        }
+
+        /**
+         * Gets the revision.
+         *
+         * @return the revision
+         */
+        RevItem getRevItem()
+        {
+            return revItem;
+        }
+
+        /**
+         * Gets the entries for the tar.
+         *
+         * @return the entries
+         */
+        List<PackEntry> getEntries()
+        {
+            return entries;
+        }
+    }
+
+    /**
+     * Entry for the tar, with either its content or the URL to stream it
+     * from.
+     */
+    private static final class PackEntry
+    {
+
+        /** Name of the entry. */
+        private final String name;
+
+        /** The content, null if streamed from the URL. */
+        private final byte[] content;
+
+        /** URL of the content. */
+        private final URL url;
+
+        /**
+         * Instantiates a new pack entry.
+         *
+         * @param _name name of the entry
+         * @param _content the content
+         * @param _url URL of the content
+         */
+        PackEntry(final String _name,
+                  final byte[] _content,
+                  final URL _url)
+        {
+            name = _name;
+            content = _content;
+            url = _url;
+        }
+
+        /**
+         * Gets the name of the entry.
+         *
+         * @return the name
+         */
+        String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Gets the content.
+         *
+         * @return the content, null if streamed from the URL
+         */
+        byte[] getContent()
+        {
+            return content;
+        }
+
+        /**
+         * Gets the URL of the content.
+         *
+         * @return the URL
+         */
+        URL getUrl()
+        {
+            return url;
+        }
+    }
+
     /**
      * The Class RevItem.
      *
@@ -39,7 +39,6 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
-import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
@@ -103,7 +102,7 @@ public class GenerateUpdatePackageMojo
     private File gitFile;
 
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException, MojoFailureException
     {
 
@@ -117,7 +116,7 @@ public class GenerateUpdatePackageMojo
         try {
             if (gitRepository != null && gitRepository.exists()) {
                 final File gitDir = new File(gitRepository, ".git");
-                final Repository repo = new FileRepository(gitDir);
+                final Repository repo = getRepositoryRegistry().getRepositoryByGitDir(gitDir);
                 final ObjectId oldID = repo.resolve(revision + "^{tree}");
                 final ObjectId newID = repo.resolve("HEAD^{tree}"); // HEAD^{tree}
                 copyGit(repo, oldID, newID);
@@ -132,7 +131,7 @@ public class GenerateUpdatePackageMojo
                     if (strArrary.length > 0) {
                         final File gitDir = new File(strArrary[0], ".git");
                         LOG.info("Using Repository: " + gitDir);
-                        final Repository repo = new FileRepository(gitDir);
+                        final Repository repo = getRepositoryRegistry().getRepositoryByGitDir(gitDir);
                         final ObjectId newID = repo.resolve("HEAD^{tree}");
                         if (strArrary.length > 1) {
                             final ObjectId oldID = repo.resolve(strArrary[1] + "^{tree}");
@@ -151,6 +150,8 @@ public class GenerateUpdatePackageMojo
             LOG.error("Catched", e);
         } catch (final GitAPIException e) {
             LOG.error("Catched",e);
+        } finally {
+            closeRepositories();
         }
     }
 
@@ -210,8 +211,10 @@ public class GenerateUpdatePackageMojo
         throws MissingObjectException, IncorrectObjectTypeException, IOException
     {
         final CanonicalTreeParser parser = new CanonicalTreeParser();
-        final ObjectReader or = _repository.newObjectReader();
-        parser.reset(or, new RevWalk(_repository).parseTree(_objectId));
+        final ObjectReader or = getRepositoryRegistry().getReader(_repository);
+        try (RevWalk revWalk = new RevWalk(or)) {
+            parser.reset(or, revWalk.parseTree(_objectId));
+        }
         return parser;
     }
 
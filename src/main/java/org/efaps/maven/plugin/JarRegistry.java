@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry for the jars read during one execution of a mojo. Every jar is
+ * opened once and its entries are served by name until the registry is
+ * closed. Reading a "jar:" URL through a connection without caches opens
+ * and indexes the whole jar for every entry, which is avoided this way.
+ * URLs of other protocols are read as usual. The registry is thread safe.
+ *
+ * <pre>
+ * final byte[] content = getJarRegistry().read(file.getUrl());
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public class JarRegistry
+    implements AutoCloseable
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(JarRegistry.class);
+
+    /** Separator of the jar and the entry in a "jar:" URL. */
+    private static final String SEPARATOR = "!/";
+
+    /** Mapping of file to the opened jar. */
+    private final Map<File, JarFile> jars = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the opened jar for a file.
+     *
+     * @param file the jar file
+     * @return the jar
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public JarFile getJarFile(final File file)
+        throws IOException
+    {
+        try {
+            return jars.computeIfAbsent(file.getAbsoluteFile(), key -> {
+                LOG.debug("Opening jar: {}", key);
+                try {
+                    return new JarFile(key);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Open a stream for a URL. For a "jar:" URL the entry is read from the
+     * opened jar.
+     *
+     * @param url the URL
+     * @return the stream, must be closed by the caller
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public InputStream openStream(final URL url)
+        throws IOException
+    {
+        final InputStream ret;
+        final JarFile jarFile = getJarFile(url);
+        if (jarFile == null) {
+            ret = url.openStream();
+        } else {
+            ret = jarFile.getInputStream(getJarEntry(jarFile, url));
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the size of the content of a URL without reading it. The size is
+     * known for entries of a jar and for files.
+     *
+     * @param url the URL
+     * @return the size in bytes, -1 if unknown
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public long getSize(final URL url)
+        throws IOException
+    {
+        final long ret;
+        final JarFile jarFile = getJarFile(url);
+        if (jarFile != null) {
+            ret = getJarEntry(jarFile, url).getSize();
+        } else if ("file".equals(url.getProtocol())) {
+            try {
+                ret = new File(url.toURI()).length();
+            } catch (final URISyntaxException e) {
+                throw new IOException(e);
+            }
+        } else {
+            ret = -1;
+        }
+        return ret;
+    }
+
+    /**
+     * Read the content of a URL.
+     *
+     * @param url the URL
+     * @return the content
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @see #openStream(URL)
+     */
+    public byte[] read(final URL url)
+        throws IOException
+    {
+        try (InputStream stream = openStream(url)) {
+            return IOUtils.toByteArray(stream);
+        }
+    }
+
+    /**
+     * Gets the name of the entry a "jar:" URL points to. Like
+     * {@link java.net.JarURLConnection} the URL is split at the first "!/"
+     * and escaped characters of the entry name are decoded.
+     *
+     * @param url the URL
+     * @return the name of the entry, null if the URL does not point into a
+     *         jar
+     */
+    public static String getEntryName(final URL url)
+    {
+        String ret = null;
+        final String urlStr = url.toString();
+        final int pos = urlStr.indexOf(SEPARATOR);
+        if ("jar".equals(url.getProtocol()) && pos > 0) {
+            ret = decode(urlStr.substring(pos + SEPARATOR.length()));
+        }
+        return ret;
+    }
+
+    /**
+     * Decode the escaped characters of a part of a URL as UTF-8.
+     *
+     * @param value the value to decode
+     * @return the decoded value
+     * @throws IllegalArgumentException on a malformed escape
+     */
+    private static String decode(final String value)
+    {
+        String ret = value;
+        if (value.indexOf('%') > -1) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length());
+            int pos = 0;
+            while (pos < value.length()) {
+                if (value.charAt(pos) == '%') {
+                    if (pos + 2 >= value.length()) {
+                        throw new IllegalArgumentException("Malformed escape in " + value);
+                    }
+                    bytes.write(Integer.parseInt(value.substring(pos + 1, pos + 3), 16));
+                    pos += 3;
+                } else {
+                    final int next = value.indexOf('%', pos);
+                    final int end = next < 0 ? value.length() : next;
+                    bytes.writeBytes(value.substring(pos, end).getBytes(StandardCharsets.UTF_8));
+                    pos = end;
+                }
+            }
+            ret = bytes.toString(StandardCharsets.UTF_8);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the opened jar for a "jar:file:" URL.
+     *
+     * @param url the URL
+     * @return the jar, null if the URL does not point into a jar file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private JarFile getJarFile(final URL url)
+        throws IOException
+    {
+        JarFile ret = null;
+        final String urlStr = url.toString();
+        final int pos = urlStr.indexOf(SEPARATOR);
+        if ("jar".equals(url.getProtocol()) && pos > 0 && urlStr.startsWith("jar:file:")) {
+            try {
+                ret = getJarFile(new File(new URL(urlStr.substring(4, pos)).toURI()));
+            } catch (final URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the entry a "jar:" URL points to.
+     *
+     * @param jarFile the opened jar
+     * @param url the URL
+     * @return the entry
+     * @throws FileNotFoundException if the jar does not contain the entry
+     */
+    private JarEntry getJarEntry(final JarFile jarFile,
+                                 final URL url)
+        throws FileNotFoundException
+    {
+        final JarEntry ret = jarFile.getJarEntry(getEntryName(url));
+        if (ret == null) {
+            throw new FileNotFoundException(url.toString());
+        }
+        return ret;
+    }
+
+    /**
+     * Close all jars.
+     */
+    @Override
+    public void close()
+    {
+        for (final JarFile jarFile : jars.values()) {
+            try {
+                jarFile.close();
+            } catch (final IOException e) {
+                LOG.warn("Could not close jar: {}", jarFile.getName(), e);
+            }
+        }
+        jars.clear();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream that deflates blocks of the data in parallel, like
+ * pigz does. Every block is deflated on its own by a worker thread, primed
+ * with the last 32 KiB of the previous block as dictionary, and ends with a
+ * sync flush, so that the deflated blocks can simply be concatenated. The
+ * result is one ordinary gzip member that every gzip reader can read, also
+ * readers that do not support concatenated members.<br/>
+ * The number of blocks in work is limited to twice the number of threads,
+ * so the memory used does not depend on the size of the data.
+ *
+ * <pre>
+ * try (OutputStream out = new ParallelGzipOutputStream(new FileOutputStream(file), 4, 128 * 1024)) {
+ *     out.write(content);
+ * }
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public class ParallelGzipOutputStream
+    extends OutputStream
+{
+
+    /** Size of the dictionary taken from the previous block. */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /** Header of a gzip member without file name and modification time. */
+    private static final byte[] HEADER = new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+                    (byte) 0xff };
+
+    /** The stream the compressed data is written to. */
+    private final OutputStream out;
+
+    /** The workers. */
+    private final ExecutorService executor;
+
+    /** Maximum number of blocks in work. */
+    private final int maxPending;
+
+    /** The blocks in work, in the order they must be written. */
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    /** Checksum of the uncompressed data. */
+    private final CRC32 crc = new CRC32();
+
+    /** The current block. */
+    private byte[] block;
+
+    /** Number of bytes in the current block. */
+    private int blockLength;
+
+    /** Dictionary for the current block, null for the first block. */
+    private byte[] dictionary;
+
+    /** Number of uncompressed bytes. */
+    private long size;
+
+    /** Was the stream closed. */
+    private boolean closed;
+
+    /**
+     * Instantiates a new stream and writes the gzip header.
+     *
+     * @param _out the stream the compressed data is written to
+     * @param _threads number of threads used to deflate
+     * @param _blockSize size of the uncompressed blocks in bytes
+     * @throws IOException on error
+     */
+    public ParallelGzipOutputStream(final OutputStream _out,
+                                    final int _threads,
+                                    final int _blockSize)
+        throws IOException
+    {
+        out = _out;
+        executor = Executors.newFixedThreadPool(Math.max(1, _threads));
+        maxPending = 2 * Math.max(1, _threads);
+        block = new byte[Math.max(DICTIONARY_SIZE, _blockSize)];
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(final int _byte)
+        throws IOException
+    {
+        write(new byte[] { (byte) _byte }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] _bytes,
+                      final int _offset,
+                      final int _length)
+        throws IOException
+    {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        crc.update(_bytes, _offset, _length);
+        size += _length;
+        int offset = _offset;
+        int remaining = _length;
+        while (remaining > 0) {
+            final int count = Math.min(remaining, block.length - blockLength);
+            System.arraycopy(_bytes, offset, block, blockLength, count);
+            blockLength += count;
+            offset += count;
+            remaining -= count;
+            if (blockLength == block.length) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * Hand the current block to the workers. If too many blocks are in work,
+     * the oldest ones are written first.
+     *
+     * @param _last is it the last block of the stream
+     * @throws IOException on error
+     */
+    private void submit(final boolean _last)
+        throws IOException
+    {
+        final byte[] input = block;
+        final int length = blockLength;
+        final byte[] dict = dictionary;
+        pending.add(executor.submit(() -> deflate(input, length, dict, _last)));
+        if (!_last) {
+            dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+            block = new byte[block.length];
+            blockLength = 0;
+        }
+        while (pending.size() > (_last ? 0 : maxPending)) {
+            writePending();
+        }
+    }
+
+    /**
+     * Wait for the oldest block in work and write it.
+     *
+     * @throws IOException on error
+     */
+    private void writePending()
+        throws IOException
+    {
+        try {
+            out.write(pending.poll().get());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (final ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Deflate one block.
+     *
+     * @param _input the uncompressed block
+     * @param _length number of bytes in the block
+     * @param _dictionary the dictionary, may be null
+     * @param _last is it the last block, that ends the deflate stream
+     * @return the deflated block
+     */
+    private static byte[] deflate(final byte[] _input,
+                                  final int _length,
+                                  final byte[] _dictionary,
+                                  final boolean _last)
+    {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (_dictionary != null) {
+                deflater.setDictionary(_dictionary);
+            }
+            deflater.setInput(_input, 0, _length);
+            final ByteArrayOutputStream ret = new ByteArrayOutputStream(_length / 2 + 64);
+            final byte[] buffer = new byte[64 * 1024];
+            if (_last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    ret.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // a sync flush ends the block on a byte boundary
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    ret.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return ret.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Write the last block and the gzip trailer. The stream the compressed
+     * data is written to is closed too.
+     *
+     * @throws IOException on error
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if (!closed) {
+            closed = true;
+            try {
+                submit(true);
+                final int crcValue = (int) crc.getValue();
+                final int isize = (int) size;
+                out.write(new byte[] { (byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16),
+                                (byte) (crcValue >> 24), (byte) isize, (byte) (isize >> 8), (byte) (isize >> 16),
+                                (byte) (isize >> 24) });
+            } finally {
+                executor.shutdownNow();
+                out.close();
+            }
+        }
+    }
+}
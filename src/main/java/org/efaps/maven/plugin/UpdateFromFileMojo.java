@@ -24,6 +24,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.update.FileType;
 import org.efaps.update.Install;
 import org.efaps.update.Install.InstallFile;
@@ -56,7 +57,7 @@ public class UpdateFromFileMojo
      * {@inheritDoc}
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException, MojoFailureException
     {
         try {
@@ -70,12 +71,15 @@ public class UpdateFromFileMojo
 
             final Install install = new Install();
             final FileInfo fileInfo = getFileInformation(file, true);
+            closeRepositories();
 
             install.addFile(new InstallFile().setURL(file.toURI().toURL()).setType(filetype.getType())
                             .setDate(fileInfo.getDate()).setRevision(fileInfo.getRev()));
             final Set<Profile> profiles = new HashSet<>();
             profiles.add(Profile.getProfile(profile));
-            install.updateLatest(profiles);
+            try (Timer timer = startPhase("install")) {
+                install.updateLatest(profiles);
+            }
             commitTransaction();
         } catch (final EFapsException e) {
             throw new MojoFailureException("import failed for file: " +  file.getName() + "; " + e.toString());
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry for the repositories used during one execution of a mojo. For
+ * every git directory one {@link Repository} and one {@link ObjectReader} is
+ * opened and reused until the registry is closed. The git directory found
+ * for a directory is remembered, so that the directory tree is climbed only
+ * once per directory. The registry is not thread safe.
+ *
+ * @author The eFaps Team
+ */
+public class RepositoryRegistry
+    implements AutoCloseable
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryRegistry.class);
+
+    /** Mapping of directory to the git directory it belongs to. */
+    private final Map<File, File> dir2GitDir = new HashMap<>();
+
+    /** Mapping of git directory to the opened repository. */
+    private final Map<File, Repository> repositories = new HashMap<>();
+
+    /** Mapping of git directory to the opened reader. */
+    private final Map<File, ObjectReader> readers = new HashMap<>();
+
+    /**
+     * Gets the repository a file or directory belongs to.
+     *
+     * @param file the file or directory
+     * @return the repository
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public Repository getRepository(final File file)
+        throws IOException
+    {
+        final File dir = (file.isDirectory() ? file : file.getParentFile()).getAbsoluteFile();
+        File gitDir = dir2GitDir.get(dir);
+        if (gitDir == null) {
+            final RepositoryBuilder builder = new RepositoryBuilder().readEnvironment().findGitDir(dir);
+            if (builder.getGitDir() == null) {
+                throw new RepositoryNotFoundException(dir);
+            }
+            gitDir = builder.getGitDir().getCanonicalFile();
+            dir2GitDir.put(dir, gitDir);
+        }
+        return getRepositoryByGitDir(gitDir);
+    }
+
+    /**
+     * Gets the repository for a git directory.
+     *
+     * @param gitDir the git directory
+     * @return the repository
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public Repository getRepositoryByGitDir(final File gitDir)
+        throws IOException
+    {
+        final File key = gitDir.getCanonicalFile();
+        Repository ret = repositories.get(key);
+        if (ret == null) {
+            LOG.debug("Opening repository: {}", key);
+            ret = new RepositoryBuilder().setGitDir(key).readEnvironment().setMustExist(true).build();
+            repositories.put(key, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the reader for a repository opened by this registry.
+     *
+     * @param repository the repository
+     * @return the reader
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public ObjectReader getReader(final Repository repository)
+        throws IOException
+    {
+        final File key = repository.getDirectory().getCanonicalFile();
+        ObjectReader ret = readers.get(key);
+        if (ret == null) {
+            ret = repository.newObjectReader();
+            readers.put(key, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Close all readers and repositories.
+     */
+    @Override
+    public void close()
+    {
+        readers.values().forEach(ObjectReader::close);
+        readers.clear();
+        repositories.values().forEach(Repository::close);
+        repositories.clear();
+        dir2GitDir.clear();
+    }
+}
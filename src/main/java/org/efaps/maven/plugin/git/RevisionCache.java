@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.efaps.maven.plugin.EFapsAbstractMojo.FileInfo;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cache for the revision information of files, stored between builds. The
+ * entries are keyed by the path relative to the work tree and the id of the
+ * blob and are valid for the commit stored as {@link #head}.
+ *
+ * @author The eFaps Team
+ * @see RevisionResolver#resolve(String, java.util.Collection, RevisionCache)
+ */
+public class RevisionCache
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(RevisionCache.class);
+
+    /** The commit the entries were resolved for. */
+    private String head;
+
+    /** The entries. */
+    private Map<String, CacheEntry> entries = new TreeMap<>();
+
+    /**
+     * Getter method for the instance variable {@link #head}.
+     *
+     * @return value of instance variable {@link #head}
+     */
+    public String getHead()
+    {
+        return head;
+    }
+
+    /**
+     * Setter method for instance variable {@link #head}.
+     *
+     * @param head value for instance variable {@link #head}
+     */
+    public void setHead(final String head)
+    {
+        this.head = head;
+    }
+
+    /**
+     * Getter method for the instance variable {@link #entries}.
+     *
+     * @return value of instance variable {@link #entries}
+     */
+    public Map<String, CacheEntry> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * Setter method for instance variable {@link #entries}.
+     *
+     * @param entries value for instance variable {@link #entries}
+     */
+    public void setEntries(final Map<String, CacheEntry> entries)
+    {
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the cached file info for a path if the cached blob is the given
+     * one.
+     *
+     * @param path the path
+     * @param blobId the blob id
+     * @return the file info or null if not cached
+     */
+    public FileInfo get(final String path,
+                        final ObjectId blobId)
+    {
+        FileInfo ret = null;
+        final CacheEntry entry = entries.get(path);
+        if (entry != null && blobId.name().equals(entry.getBlob())) {
+            ret = new FileInfo().setRev(entry.getRev()).setDate(DateTime.parse(entry.getDate()));
+        }
+        return ret;
+    }
+
+    /**
+     * Replace the content of the cache with the information resolved for a
+     * commit.
+     *
+     * @param headId the commit the information was resolved for
+     * @param blobIds mapping of path to blob id
+     * @param infos mapping of path to file info
+     */
+    public void update(final ObjectId headId,
+                       final Map<String, ObjectId> blobIds,
+                       final Map<String, FileInfo> infos)
+    {
+        head = headId.name();
+        entries = new TreeMap<>();
+        for (final Entry<String, FileInfo> info : infos.entrySet()) {
+            final ObjectId blobId = blobIds.get(info.getKey());
+            if (blobId != null) {
+                final CacheEntry entry = new CacheEntry();
+                entry.setBlob(blobId.name());
+                entry.setRev(info.getValue().getRev());
+                entry.setDate(info.getValue().getDate().toString());
+                entries.put(info.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * Write the cache to a file.
+     *
+     * @param file the file
+     */
+    public void write(final File file)
+    {
+        try {
+            file.getParentFile().mkdirs();
+            new ObjectMapper().writeValue(file, this);
+        } catch (final IOException e) {
+            LOG.warn("Could not write revision cache: {}", file, e);
+        }
+    }
+
+    /**
+     * Read the cache from a file. If the file does not exist or can not be
+     * read an empty cache is returned.
+     *
+     * @param file the file
+     * @return the revision cache
+     */
+    public static RevisionCache read(final File file)
+    {
+        RevisionCache ret = null;
+        if (file.exists()) {
+            try {
+                ret = new ObjectMapper()
+                                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                                .readValue(file, RevisionCache.class);
+            } catch (final IOException e) {
+                LOG.warn("Could not read revision cache: {}", file, e);
+            }
+        }
+        return ret == null ? new RevisionCache() : ret;
+    }
+
+    /**
+     * The Class CacheEntry.
+     *
+     * @author The eFaps Team
+     */
+    public static class CacheEntry
+    {
+
+        /** The blob. */
+        private String blob;
+
+        /** The rev. */
+        private String rev;
+
+        /** The date. */
+        private String date;
+
+        /**
+         * Getter method for the instance variable {@link #blob}.
+         *
+         * @return value of instance variable {@link #blob}
+         */
+        public String getBlob()
+        {
+            return blob;
+        }
+
+        /**
+         * Setter method for instance variable {@link #blob}.
+         *
+         * @param blob value for instance variable {@link #blob}
+         */
+        public void setBlob(final String blob)
+        {
+            this.blob = blob;
+        }
+
+        /**
+         * Getter method for the instance variable {@link #rev}.
+         *
+         * @return value of instance variable {@link #rev}
+         */
+        public String getRev()
+        {
+            return rev;
+        }
+
+        /**
+         * Setter method for instance variable {@link #rev}.
+         *
+         * @param rev value for instance variable {@link #rev}
+         */
+        public void setRev(final String rev)
+        {
+            this.rev = rev;
+        }
+
+        /**
+         * Getter method for the instance variable {@link #date}.
+         *
+         * @return value of instance variable {@link #date}
+         */
+        public String getDate()
+        {
+            return date;
+        }
+
+        /**
+         * Setter method for instance variable {@link #date}.
+         *
+         * @param date value for instance variable {@link #date}
+         */
+        public void setDate(final String date)
+        {
+            this.date = date;
+        }
+    }
+}
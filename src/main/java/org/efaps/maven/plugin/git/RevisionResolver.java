@@ -0,0 +1,414 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.efaps.maven.plugin.EFapsAbstractMojo.FileInfo;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the last commit that touched each file of a set of files by
+ * walking the history of the repository only once. The walk is done with a
+ * tree filter for all paths and stops as soon as every path is resolved.
+ *
+ * @author The eFaps Team
+ */
+public class RevisionResolver
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(RevisionResolver.class);
+
+    /** Name of the commit-graph file inside the object database. */
+    private static final String COMMIT_GRAPH = "objects/info/commit-graph";
+
+    /** The repository. */
+    private final Repository repository;
+
+    /** The reader, if null a reader is opened for each resolve. */
+    private final ObjectReader reader;
+
+    /**
+     * Instantiates a new revision resolver.
+     *
+     * @param repository the repository
+     */
+    public RevisionResolver(final Repository repository)
+    {
+        this(repository, null);
+    }
+
+    /**
+     * Instantiates a new revision resolver using a given reader. The reader
+     * is not closed by the resolver.
+     *
+     * @param repository the repository
+     * @param reader the reader
+     */
+    public RevisionResolver(final Repository repository,
+                            final ObjectReader reader)
+    {
+        this.repository = repository;
+        this.reader = reader;
+    }
+
+    /**
+     * Resolve the last commit for the given files.
+     *
+     * @param prefix path of the directory the files are relative to, relative
+     *            to the work tree of the repository
+     * @param files the files
+     * @return mapping of file to information, files that are not tracked by
+     *         the repository are not contained
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public Map<String, FileInfo> resolve(final String prefix,
+                                         final Collection<String> files)
+        throws IOException
+    {
+        return resolve(prefix, files, null);
+    }
+
+    /**
+     * Resolve the last commit for the given files using a cache. If the
+     * commit the cache was built for is still part of the history of HEAD,
+     * only the commits added since then are walked and the cached entries
+     * are used for all paths not changed by them. On a rebase or a switch to
+     * another branch the cache is ignored. After resolving, the cache is
+     * updated to HEAD.
+     *
+     * @param prefix path of the directory the files are relative to, relative
+     *            to the work tree of the repository
+     * @param files the files
+     * @param cache the cache, may be null
+     * @return mapping of file to information, files that are not tracked by
+     *         the repository are not contained
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public Map<String, FileInfo> resolve(final String prefix,
+                                         final Collection<String> files,
+                                         final RevisionCache cache)
+        throws IOException
+    {
+        final Map<String, FileInfo> ret = new HashMap<>();
+        final Map<String, String> path2file = new HashMap<>();
+        for (final String file : files) {
+            path2file.put(getPath(prefix, file), file);
+        }
+        final ObjectId headId = repository.resolve(Constants.HEAD);
+        if (headId == null || path2file.isEmpty()) {
+            return ret;
+        }
+        enableCommitGraph();
+        final ObjectReader objectReader = reader == null ? repository.newObjectReader() : reader;
+        try {
+            final RevCommit head;
+            try (var revWalk = new RevWalk(objectReader)) {
+                head = revWalk.parseCommit(headId);
+            }
+            final Map<String, ObjectId> blobIds = getBlobIds(objectReader, head.getTree(), path2file.keySet());
+            final Map<String, FileInfo> infos = new HashMap<>();
+            Map<String, ObjectId> stale = blobIds;
+            final ObjectId boundary = cache == null ? null : getBoundary(objectReader, headId, cache);
+            if (boundary != null) {
+                stale = new HashMap<>();
+                final Map<String, FileInfo> changed = walk(objectReader, headId, new HashMap<>(blobIds), boundary);
+                for (final Entry<String, ObjectId> entry : blobIds.entrySet()) {
+                    FileInfo info = changed.get(entry.getKey());
+                    if (info == null) {
+                        info = cache.get(entry.getKey(), entry.getValue());
+                    }
+                    if (info == null) {
+                        stale.put(entry.getKey(), entry.getValue());
+                    } else {
+                        infos.put(entry.getKey(), info);
+                    }
+                }
+                LOG.info("Revision cache: {} paths changed since {}, {} paths must be resolved", changed.size(),
+                                boundary.name(), stale.size());
+            }
+            if (!stale.isEmpty()) {
+                infos.putAll(walk(objectReader, headId, new HashMap<>(stale), null));
+            }
+            if (cache != null) {
+                cache.update(headId, blobIds, infos);
+            }
+            for (final Entry<String, FileInfo> entry : infos.entrySet()) {
+                ret.put(path2file.get(entry.getKey()), entry.getValue());
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Resolved {} of {} paths", ret.size(), path2file.size());
+            }
+        } finally {
+            if (reader == null) {
+                objectReader.close();
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Resolve the information for the given files without walking the
+     * history. The revision of a file is the id of its blob as stored in the
+     * index of the repository, read in one pass. The date is the one of
+     * HEAD for all files.
+     *
+     * @param prefix path of the directory the files are relative to, relative
+     *            to the work tree of the repository
+     * @param files the files
+     * @return mapping of file to information, files that are not contained
+     *         in the index are not contained
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public Map<String, FileInfo> resolveBlobs(final String prefix,
+                                              final Collection<String> files)
+        throws IOException
+    {
+        final Map<String, FileInfo> ret = new HashMap<>();
+        final Map<String, String> path2file = new HashMap<>();
+        for (final String file : files) {
+            path2file.put(getPath(prefix, file), file);
+        }
+        final ObjectId headId = repository.resolve(Constants.HEAD);
+        if (headId == null || path2file.isEmpty()) {
+            return ret;
+        }
+        final DateTime date;
+        try (var revWalk = reader == null ? new RevWalk(repository) : new RevWalk(reader)) {
+            date = getFileInfo(revWalk.parseCommit(headId)).getDate();
+        }
+        final DirCache dirCache = repository.readDirCache();
+        for (int i = 0; i < dirCache.getEntryCount(); i++) {
+            final DirCacheEntry entry = dirCache.getEntry(i);
+            final String file = path2file.get(entry.getPathString());
+            if (file != null && entry.getStage() == DirCacheEntry.STAGE_0) {
+                ret.put(file, new FileInfo().setRev(entry.getObjectId().name()).setDate(date));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Walk the history from HEAD and resolve the commit that introduced the
+     * given blobs.
+     *
+     * @param reader the reader
+     * @param headId id of HEAD
+     * @param remaining mapping of path to blob id in HEAD, resolved paths are
+     *            removed
+     * @param boundary commit the walk stops at, null to walk the whole
+     *            history
+     * @return mapping of path to information
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    protected Map<String, FileInfo> walk(final ObjectReader reader,
+                                         final ObjectId headId,
+                                         final Map<String, ObjectId> remaining,
+                                         final ObjectId boundary)
+        throws IOException
+    {
+        final Map<String, FileInfo> ret = new HashMap<>();
+        if (remaining.isEmpty()) {
+            return ret;
+        }
+        try (var revWalk = new RevWalk(reader)) {
+            TreeFilter pathFilter = PathFilterGroup.createFromStrings(remaining.keySet());
+            revWalk.setTreeFilter(AndTreeFilter.create(pathFilter, TreeFilter.ANY_DIFF));
+            revWalk.setRewriteParents(false);
+            revWalk.markStart(revWalk.parseCommit(headId));
+            if (boundary != null) {
+                revWalk.markUninteresting(revWalk.parseCommit(boundary));
+            }
+            for (final RevCommit commit : revWalk) {
+                boolean resolved = false;
+                try (var treeWalk = new TreeWalk(reader)) {
+                    treeWalk.setRecursive(true);
+                    treeWalk.setFilter(AndTreeFilter.create(pathFilter, TreeFilter.ANY_DIFF));
+                    treeWalk.addTree(commit.getTree());
+                    if (commit.getParentCount() == 0) {
+                        treeWalk.addTree(new EmptyTreeIterator());
+                    } else {
+                        for (final RevCommit parent : commit.getParents()) {
+                            revWalk.parseHeaders(parent);
+                            treeWalk.addTree(parent.getTree());
+                        }
+                    }
+                    while (treeWalk.next()) {
+                        final String path = treeWalk.getPathString();
+                        final ObjectId blobId = remaining.get(path);
+                        if (blobId != null && isIntroduced(treeWalk, blobId)) {
+                            ret.put(path, getFileInfo(commit));
+                            remaining.remove(path);
+                            resolved = true;
+                        }
+                    }
+                }
+                if (resolved) {
+                    if (remaining.isEmpty()) {
+                        break;
+                    }
+                    pathFilter = PathFilterGroup.createFromStrings(remaining.keySet());
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the commit of the cache if it can be used as boundary for an
+     * incremental walk. That is the case if the commit still exists and is
+     * an ancestor of HEAD.
+     *
+     * @param reader the reader
+     * @param headId id of HEAD
+     * @param cache the cache
+     * @return the boundary or null if the cache can not be used
+     */
+    protected ObjectId getBoundary(final ObjectReader reader,
+                                   final ObjectId headId,
+                                   final RevisionCache cache)
+    {
+        ObjectId ret = null;
+        if (cache.getHead() != null && ObjectId.isId(cache.getHead())) {
+            try (var revWalk = new RevWalk(reader)) {
+                final RevCommit cached = revWalk.parseCommit(ObjectId.fromString(cache.getHead()));
+                if (revWalk.isMergedInto(cached, revWalk.parseCommit(headId))) {
+                    ret = cached.copy();
+                } else {
+                    LOG.info("Revision cache is not valid for the current history and is discarded");
+                }
+            } catch (final IOException e) {
+                LOG.info("Revision cache refers to an unknown commit and is discarded");
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Checks if the current entry of the tree walk was introduced by the
+     * commit in the first tree. That is the case if its blob is the one of
+     * HEAD and it differs from the entries of all parents. For merges this
+     * follows the same rule as git: a merge that keeps the content of one of
+     * its parents did not change the file.
+     *
+     * @param treeWalk the tree walk
+     * @param blobId the blob id of the file in HEAD
+     * @return true, if introduced
+     */
+    private boolean isIntroduced(final TreeWalk treeWalk,
+                                 final ObjectId blobId)
+    {
+        boolean ret = blobId.equals(treeWalk.getObjectId(0));
+        for (int i = 1; ret && i < treeWalk.getTreeCount(); i++) {
+            ret = !treeWalk.idEqual(0, i) || treeWalk.getRawMode(0) != treeWalk.getRawMode(i);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the blob ids for the given paths from a tree.
+     *
+     * @param reader the reader
+     * @param tree the tree
+     * @param paths the paths
+     * @return mapping of path to blob id for the paths contained in the tree
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    protected Map<String, ObjectId> getBlobIds(final ObjectReader reader,
+                                               final RevTree tree,
+                                               final Collection<String> paths)
+        throws IOException
+    {
+        final Map<String, ObjectId> ret = new HashMap<>();
+        try (var treeWalk = new TreeWalk(reader)) {
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathFilterGroup.createFromStrings(paths));
+            treeWalk.addTree(tree);
+            while (treeWalk.next()) {
+                ret.put(treeWalk.getPathString(), treeWalk.getObjectId(0));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Use the commit-graph file of the repository if one exists. JGit only
+     * reads it if it is enabled in the configuration, so it is enabled for the
+     * in memory configuration only.
+     */
+    protected void enableCommitGraph()
+    {
+        final File commitGraph = new File(repository.getDirectory(), COMMIT_GRAPH);
+        if (commitGraph.exists() && !repository.getConfig().get(CoreConfig.KEY).enableCommitGraph()) {
+            LOG.debug("Enabling commit-graph for: {}", repository.getDirectory());
+            repository.getConfig().setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+                            ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+        }
+    }
+
+    /**
+     * Gets the path relative to the work tree.
+     *
+     * @param prefix the prefix
+     * @param file the file
+     * @return the path
+     */
+    public static String getPath(final String prefix,
+                                 final String file)
+    {
+        final String path = prefix == null || prefix.isEmpty() ? file : prefix + "/" + file;
+        return path.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Gets the file info for a commit.
+     *
+     * @param commit the commit
+     * @return the file info
+     */
+    public static FileInfo getFileInfo(final RevCommit commit)
+    {
+        final PersonIdent authorIdent = commit.getAuthorIdent();
+        final DateTime dateTime = new DateTime(authorIdent.getWhen().getTime(),
+                        DateTimeZone.forTimeZone(authorIdent.getTimeZone()));
+        return new FileInfo().setDate(dateTime).setRev(commit.getId().getName());
+    }
+}
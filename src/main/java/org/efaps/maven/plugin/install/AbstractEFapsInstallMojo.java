@@ -27,6 +27,7 @@ import java.util.Set;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.tools.ant.DirectoryScanner;
 import org.efaps.maven.plugin.EFapsAbstractMojo;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.update.FileType;
 
 /**
@@ -154,28 +155,30 @@ public abstract class AbstractEFapsInstallMojo
     protected List<String> getFiles()
     {
         final List<String> ret = new ArrayList<>();
-        final DirectoryScanner ds = new DirectoryScanner();
-        final String[] included = getIncludes() == null
-            ? AbstractEFapsInstallMojo.DEFAULT_INCLUDES
-                            .toArray(new String[AbstractEFapsInstallMojo.DEFAULT_INCLUDES.size()])
-            : getIncludes().toArray(new String[getIncludes().size()]);
-        final String[] excluded = getExcludes() == null
-            ? AbstractEFapsInstallMojo.DEFAULT_EXCLUDES
-                            .toArray(new String[AbstractEFapsInstallMojo.DEFAULT_EXCLUDES.size()])
-            : getExcludes().toArray(new String[getExcludes().size()]);
-        ds.setIncludes(included);
-        ds.setExcludes(excluded);
-        ds.setBasedir(getEFapsDir().toString());
-        ds.setCaseSensitive(true);
-        ds.scan();
+        try (Timer timer = startPhase("scan")) {
+            final DirectoryScanner ds = new DirectoryScanner();
+            final String[] included = getIncludes() == null
+                ? AbstractEFapsInstallMojo.DEFAULT_INCLUDES
+                                .toArray(new String[AbstractEFapsInstallMojo.DEFAULT_INCLUDES.size()])
+                : getIncludes().toArray(new String[getIncludes().size()]);
+            final String[] excluded = getExcludes() == null
+                ? AbstractEFapsInstallMojo.DEFAULT_EXCLUDES
+                                .toArray(new String[AbstractEFapsInstallMojo.DEFAULT_EXCLUDES.size()])
+                : getExcludes().toArray(new String[getExcludes().size()]);
+            ds.setIncludes(included);
+            ds.setExcludes(excluded);
+            ds.setBasedir(getEFapsDir().toString());
+            ds.setCaseSensitive(true);
+            ds.scan();
 
-        if (outputDirectory.exists()) {
+            if (outputDirectory.exists()) {
+                ret.addAll(Arrays.asList(ds.getIncludedFiles()));
+                ds.setBasedir(outputDirectory);
+                ds.scan();
+            }
             ret.addAll(Arrays.asList(ds.getIncludedFiles()));
-            ds.setBasedir(outputDirectory);
-            ds.scan();
+            timer.addFiles(ret.size());
         }
-        ret.addAll(Arrays.asList(ds.getIncludedFiles()));
-
         return ret;
     }
 
@@ -15,27 +15,39 @@
  */
 package org.efaps.maven.plugin.install;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URLConnection;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
-import org.apache.commons.digester3.Digester;
-import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
-import org.apache.commons.digester3.binder.DigesterLoader;
 import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.ContextEnabled;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -46,12 +58,15 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.xmlbeans.impl.common.NameUtil;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
+import org.efaps.maven.plugin.install.digester.DigesterRegistry;
 import org.efaps.maven.plugin.install.digester.FormCI;
 import org.efaps.maven.plugin.install.digester.ITypeCI;
 import org.efaps.maven.plugin.install.digester.ITypeDefintion;
 import org.efaps.maven.plugin.install.digester.IUniqueCI;
 import org.efaps.maven.plugin.install.digester.MsgPhraseCI;
 import org.efaps.maven.plugin.install.digester.NumGenCI;
+import org.efaps.maven.plugin.install.digester.RootElement;
 import org.efaps.maven.plugin.install.digester.StatusCIDefinition;
 import org.efaps.maven.plugin.install.digester.StatusGroupCI;
 import org.efaps.maven.plugin.install.digester.TableCI;
@@ -79,6 +94,12 @@ public class GenerateCIClassMojo
 
     private static final Logger LOG = LoggerFactory.getLogger(GenerateCIClassMojo.class);
 
+    /** Line of the class comment containing the date of the generation. */
+    private static final Pattern DATE_LINE = Pattern.compile("^ \\* Date: .*$", Pattern.MULTILINE);
+
+    /** First int of the index from UUID to CI object, "CIIX". */
+    private static final int CI_INDEX_MAGIC = 0x43494958;
+
     /**
      * Definitions for a CI UserInterface object.
      */
@@ -111,6 +132,56 @@ public class GenerateCIClassMojo
         }
     }
 
+    /**
+     * Layout of the generated CI classes for types, forms and tables.
+     */
+    public enum CILayout
+    {
+        /** One static field per type, all types are created with the class. */
+        EAGER,
+        /**
+         * Every type is declared in a holder interface implemented by the CI
+         * class, a type is only created on the first access of its field.
+         */
+        LAZY,
+        /**
+         * Like {@link #LAZY}, but every holder interface is a public source
+         * file that also contains the class of the type. The CI class is only
+         * a facade implementing the holders.
+         */
+        SHARDED;
+    }
+
+    /**
+     * Kind of a CI object in the index, the ordinal is stored in the index.
+     */
+    private enum CIKind
+    {
+        /** Type or StatusGroup. */
+        TYPE("CI"),
+        /** Form. */
+        FORM("CIForm"),
+        /** Table. */
+        TABLE("CITable"),
+        /** MsgPhrase. */
+        MSGPHRASE("CIMsg"),
+        /** NumberGenerator. */
+        NUMGEN("CINumGen");
+
+        /**
+         * Prefix for the class Name.
+         */
+        private final String classNamePrefix;
+
+        /**
+         * @param _classNamePrefix prefix for the class Name
+         */
+        CIKind(final String _classNamePrefix)
+        {
+            classNamePrefix = _classNamePrefix;
+        }
+    }
+
     /**
      * The CiName.
      */
@@ -162,25 +233,57 @@ public class GenerateCIClassMojo
     @Parameter(defaultValue = "")
     private final String ciParentReplacment;
 
+    /**
+     * Layout of the generated CI classes for types, forms and tables.
+     */
+    @Parameter(property = "efaps.ciclass.layout", defaultValue = "EAGER")
+    private CILayout ciLayout;
+
+    /**
+     * File the fingerprint of the inputs of the last generation is stored
+     * in. If the fingerprint did not change the generation is skipped.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/efaps-ciclass.fingerprint")
+    private File fingerprintFile;
+
+    /**
+     * Generate the classes even if the inputs did not change.
+     */
+    @Parameter(property = "efaps.ciclass.force", defaultValue = "false")
+    private boolean force;
+
+    /**
+     * The directory the index from UUID to CI object is generated in. The
+     * directory is registered as a resource directory of the project.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/generated-resources/efaps")
+    private File resourceDirectory;
+
     /**
      * Set of types.
      */
     private final Map<String, ITypeCI> types = new TreeMap<>();
 
     /**
-     * Set of Tables.
+     * Set of Tables, in the order of the files.
      */
-    private final Set<UserInterfaceCI> uiCIs = new HashSet<>();
+    private final Set<UserInterfaceCI> uiCIs = new LinkedHashSet<>();
 
     /**
-     * Set of MsgPhrases.
+     * Set of MsgPhrases, in the order of the files.
      */
-    private final Set<MsgPhraseCI> msgPhraseCIs = new HashSet<>();
+    private final Set<MsgPhraseCI> msgPhraseCIs = new LinkedHashSet<>();
 
     /**
-     * Set of MsgPhrases.
+     * Set of MsgPhrases, in the order of the files.
      */
-    private final Set<NumGenCI> numGenCIs = new HashSet<>();
+    private final Set<NumGenCI> numGenCIs = new LinkedHashSet<>();
+
+    /**
+     * Entries of the index from UUID to CI object, in the order of
+     * generation.
+     */
+    private final List<CIIndexEntry> ciIndex = new ArrayList<>();
 
     /**
      * The current Maven project.
@@ -213,27 +316,14 @@ public class GenerateCIClassMojo
      * @throws MojoFailureException on error
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException, MojoFailureException
     {
         try {
             init(false);
-            final DigesterLoader loader = DigesterLoader.newLoader(new FromAnnotationsRuleModule()
-            {
-
-                @Override
-                protected void configureRules()
-                {
-                    bindRulesFrom(TypeCI.class);
-                    bindRulesFrom(StatusGroupCI.class);
-                    bindRulesFrom(FormCI.class);
-                    bindRulesFrom(TableCI.class);
-                    bindRulesFrom(MsgPhraseCI.class);
-                    bindRulesFrom(NumGenCI.class);
-                }
-            });
-
-            final Application appl = Application.getApplicationFromSource(
+            final Application appl;
+            try (Timer timer = startPhase("scan")) {
+                appl = Application.getApplicationFromSource(
                             getVersionFile(),
                             getClasspathElements(),
                             getEFapsDir(),
@@ -241,43 +331,183 @@ public class GenerateCIClassMojo
                             getIncludes(),
                             getExcludes(),
                             getTypeMapping());
-
+            }
             final List<InstallFile> files = appl.getInstall().getFiles();
-            for (final InstallFile file : files) {
-                LOG.debug("reading file: {}", file);
-                if (file.getType().equals(FileType.XML)) {
-                    final Digester digester = loader.newDigester();
-                    final URLConnection connection = file.getUrl().openConnection();
-                    connection.setUseCaches(false);
-                    final InputStream stream = connection.getInputStream();
-                    final InputSource source = new InputSource(stream);
-                    final Object item = digester.parse(source);
-                    stream.close();
-                    if (item != null) {
-                        if (item instanceof ITypeCI) {
-                            types.put(((ITypeCI) item).getDefinitions().get(0).getName(), (ITypeCI) item);
-                        } else if (item instanceof MsgPhraseCI) {
-                            msgPhraseCIs.add((MsgPhraseCI) item);
-                        } else if (item instanceof NumGenCI) {
-                            numGenCIs.add((NumGenCI) item);
-                        } else {
-                            uiCIs.add((UserInterfaceCI) item);
-                        }
-                    }
+            final String fingerprint;
+            try (Timer timer = startPhase("fingerprint")) {
+                fingerprint = getFingerprint(appl.getApplication(), files, timer);
+            }
+            if (isUpToDate(fingerprint)) {
+                LOG.info("CI classes are up to date");
+            } else {
+                FileUtils.deleteQuietly(fingerprintFile);
+                parseFiles(files);
+                try (Timer timer = startPhase("generate")) {
+                    buildCIType(appl.getApplication());
+                    buildCI4UI(appl.getApplication(), CIDef4UI.FORM);
+                    buildCI4UI(appl.getApplication(), CIDef4UI.TABLE);
+                    buildCIMsgPhrase(appl.getApplication());
+                    buildCINumGen(appl.getApplication());
+                    buildCIIndex(appl.getApplication());
                 }
+                FileUtils.writeStringToFile(fingerprintFile, fingerprint, StandardCharsets.UTF_8);
             }
-            buildCIType(appl.getApplication());
-            buildCI4UI(appl.getApplication(), CIDef4UI.FORM);
-            buildCI4UI(appl.getApplication(), CIDef4UI.TABLE);
-            buildCIMsgPhrase(appl.getApplication());
-            buildCINumGen(appl.getApplication());
             project.addCompileSourceRoot(getOutputDirectory().getAbsolutePath());
-        } catch (final SAXException | IOException  | InstallationException e) {
+            final Resource resource = new Resource();
+            resource.setDirectory(resourceDirectory.getAbsolutePath());
+            project.addResource(resource);
+        } catch (final ExecutionException e) {
+            throw new MojoExecutionException("Could not parse the CI files", e.getCause());
+        } catch (final IOException  | InstallationException e) {
             LOG.error("Catched", e);
             throw new MojoExecutionException("SAXException");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted", e);
         }
     }
 
+    /**
+     * Compute the fingerprint of the inputs of the generation: the version of
+     * the plugin, the parameters and the content of the XML files.
+     *
+     * @param _appName name of the application
+     * @param _files the files of the application
+     * @param _timer the timer of the fingerprint phase
+     * @return the fingerprint
+     * @throws IOException on error
+     */
+    private String getFingerprint(final String _appName,
+                                  final List<InstallFile> _files,
+                                  final Timer _timer)
+        throws IOException
+    {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        final PluginDescriptor descriptor = (PluginDescriptor) pluginContext.get("pluginDescriptor");
+        final String[] values = { descriptor.getVersion(), _appName, ciName, ciPackage, ciTypeRegex,
+                        ciTypeReplacement, ciUnallowedRegex, ciUnallowedReplacement, ciParentRegex,
+                        ciParentReplacment, String.valueOf(ciLayout) };
+        for (final String value : values) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        final byte[] buffer = new byte[8192];
+        for (final InstallFile file : _files) {
+            if (FileType.XML.equals(file.getType())) {
+                digest.update(file.getUrl().toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                long size = 0;
+                try (InputStream stream = getJarRegistry().openStream(file.getUrl())) {
+                    int read = stream.read(buffer);
+                    while (read > -1) {
+                        digest.update(buffer, 0, read);
+                        size += read;
+                        read = stream.read(buffer);
+                    }
+                }
+                _timer.addFile(size);
+            }
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    /**
+     * Are the generated classes up to date. That is the case if the
+     * fingerprint is the one of the last generation and all classes exist.
+     *
+     * @param _fingerprint the fingerprint of the inputs
+     * @return true if nothing must be generated
+     * @throws IOException on error
+     */
+    private boolean isUpToDate(final String _fingerprint)
+        throws IOException
+    {
+        boolean ret = !force && fingerprintFile.exists()
+                        && _fingerprint.equals(FileUtils.readFileToString(fingerprintFile, StandardCharsets.UTF_8)
+                                        .trim());
+        final String[] prefixes = { "CI", CIDef4UI.FORM.classNamePrefix, CIDef4UI.TABLE.classNamePrefix, "CIMsg",
+                        "CINumGen", "CIIndex" };
+        for (final String prefix : prefixes) {
+            ret = ret && getJavaFile(prefix + ciName).exists();
+        }
+        ret = ret && getCIIndexFile().exists();
+        return ret;
+    }
+
+    /**
+     * Parse the XML files in parallel.
+     *
+     * @param _files the files of the application
+     * @throws ExecutionException on error during parsing
+     * @throws InterruptedException if interrupted
+     */
+    private void parseFiles(final List<InstallFile> _files)
+        throws ExecutionException, InterruptedException
+    {
+        final Class<?>[] ciClasses = { TypeCI.class, StatusGroupCI.class, FormCI.class, TableCI.class,
+                        MsgPhraseCI.class, NumGenCI.class };
+        final ExecutorService executor = Executors.newFixedThreadPool(getThreads());
+        try (Timer timer = startPhase("parse")) {
+            final List<Future<Object>> items = new ArrayList<>();
+            for (final InstallFile file : _files) {
+                LOG.debug("reading file: {}", file);
+                if (file.getType().equals(FileType.XML)) {
+                    items.add(executor.submit(() -> parse(file, ciClasses, timer)));
+                }
+            }
+            // merged in the order of the files, independent of the threads
+            for (final Future<Object> future : items) {
+                final Object item = future.get();
+                if (item != null) {
+                    if (item instanceof ITypeCI) {
+                        types.put(((ITypeCI) item).getDefinitions().get(0).getName(), (ITypeCI) item);
+                    } else if (item instanceof MsgPhraseCI) {
+                        msgPhraseCIs.add((MsgPhraseCI) item);
+                    } else if (item instanceof NumGenCI) {
+                        numGenCIs.add((NumGenCI) item);
+                    } else {
+                        uiCIs.add((UserInterfaceCI) item);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parse a file with the rules of the given CI classes. Called in
+     * parallel, the digester is confined to the current thread.
+     *
+     * @param _file the file to parse
+     * @param _ciClasses the CI classes
+     * @param _timer the timer of the parse phase
+     * @return the parsed item, null if no CI class is bound to the file
+     * @throws IOException on error
+     * @throws SAXException on error
+     */
+    private Object parse(final InstallFile _file,
+                         final Class<?>[] _ciClasses,
+                         final Timer _timer)
+        throws IOException, SAXException
+    {
+        final byte[] content = getJarRegistry().read(_file.getUrl());
+        final InputStream stream = new ByteArrayInputStream(content);
+        final Object ret;
+        if (RootElement.isBound(RootElement.sniff(stream), _ciClasses)) {
+            ret = DigesterRegistry.parse(new InputSource(stream), _ciClasses);
+            _timer.addFile(content.length);
+        } else {
+            ret = null;
+        }
+        return ret;
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public void setPluginContext(final Map _pluginContext)
@@ -304,69 +534,63 @@ public class GenerateCIClassMojo
                             final CIDef4UI _ciDef)
         throws IOException
     {
-        final StringBuilder java = new StringBuilder()
-                        .append("//CHECKSTYLE:OFF\n")
-                        .append("package ").append(ciPackage).append(";\n")
-                        .append("import org.efaps.admin.program.esjp.EFapsApplication;\n")
-                        .append("import org.efaps.ci.*;\n\n")
-                        .append(getClassComment())
-                        .append("@EFapsApplication(\"").append(_appName).append("\")\n")
-                        .append("public final class ").append(_ciDef.classNamePrefix).append(ciName)
-                        .append("\n{\n");
-
-         for (final UserInterfaceCI uici : uiCIs) {
-             if (uici.getCIDef().equals(_ciDef)) {
-                 final String formName = uici.getName().replaceAll(ciUnallowedRegex,ciUnallowedReplacement);
-
-                 java.append("    public static final _").append(formName).append(" ").append(formName)
-                     .append(" = new _").append(formName).append("(\"").append(uici.getUuid()).append("\");\n")
-                     .append("    public static class _").append(formName).append(" extends ")
-                     .append(_ciDef.extendClass)
-                     .append("\n    {\n")
-                     .append("        protected _").append(formName).append("(final String _uuid)\n        {\n")
-                     .append("            super(_uuid);")
-                     .append("\n        }\n");
-
-                final Map<String, List<String>> fields = new TreeMap<>();
-                for (final UIDefintion uiDef : uici.getDefinitions()) {
-                    for (final String field : uiDef.getFields()) {
-                        List<String> profiles;
-                        if (fields.containsKey(field)) {
-                            profiles = fields.get(field);
-                        } else {
-                            profiles = new ArrayList<>();
-                        }
-                        profiles.addAll(uiDef.getProfiles());
-                        fields.put(field, profiles);
-                    }
-                }
-
-                for (final Entry<String, List<String>> entry : fields.entrySet()) {
-                    // check if the attribute name can be used in java, if not
-                    // extend the
-                    final String identifier = NameUtil.isValidJavaIdentifier(entry.getKey()) ?
-                                    entry.getKey() : entry.getKey() + "_field";
-                    java.append("        public final CIField ").append(identifier)
-                                    .append(" = new CIField(this, \"").append(entry.getKey()).append("\"");
-                    for (final String profile : entry.getValue()) {
-                        java.append(", \"").append(profile).append("\"");
-                    }
-                    java.append(");\n");
-                }
-                java.append("    }\n\n");
-             }
-         }
-         java.append("}\n");
-
-        getOutputDirectory().mkdir();
+        final List<CIMember> members = new ArrayList<>();
+        for (final UserInterfaceCI uici : uiCIs) {
+            if (uici.getCIDef().equals(_ciDef)) {
+                final String formName = uici.getName().replaceAll(ciUnallowedRegex,ciUnallowedReplacement);
+                members.add(new CIMember(formName, uici.getUuid(),
+                                _writer -> writeUIClass(_writer, _ciDef, formName, uici)));
+            }
+        }
+        writeCIClass(_appName, _ciDef.classNamePrefix + ciName, members, "org.efaps.ci.*");
+        addToIndex(CIDef4UI.FORM.equals(_ciDef) ? CIKind.FORM : CIKind.TABLE, members);
+    }
 
-        final String folders = ciPackage.replace(".", File.separator);
-        final File srcFolder = new File(getOutputDirectory(), folders);
-        srcFolder.mkdirs();
+    /**
+     * Write the class for a form or table.
+     *
+     * @param _writer the writer
+     * @param _ciDef CI Definition
+     * @param _formName name of the form or table
+     * @param _uici the form or table
+     * @throws IOException on error
+     */
+    private void writeUIClass(final JavaSourceWriter _writer,
+                              final CIDef4UI _ciDef,
+                              final String _formName,
+                              final UserInterfaceCI _uici)
+        throws IOException
+    {
+        _writer.line("public static class _", _formName, " extends ", _ciDef.extendClass).beginBlock()
+            .line("protected _", _formName, "(final String _uuid)").beginBlock()
+            .line("super(_uuid);").endBlock();
 
-        final File javaFile = new File(srcFolder, _ciDef.classNamePrefix + ciName + ".java");
+        final Map<String, List<String>> fields = new TreeMap<>();
+        for (final UIDefintion uiDef : _uici.getDefinitions()) {
+            for (final String field : uiDef.getFields()) {
+                List<String> profiles;
+                if (fields.containsKey(field)) {
+                    profiles = fields.get(field);
+                } else {
+                    profiles = new ArrayList<>();
+                }
+                profiles.addAll(uiDef.getProfiles());
+                fields.put(field, profiles);
+            }
+        }
 
-        FileUtils.writeStringToFile(javaFile, java.toString(), StandardCharsets.UTF_8);
+        for (final Entry<String, List<String>> entry : fields.entrySet()) {
+            // check if the attribute name can be used in java, if not
+            // extend the
+            final String identifier = NameUtil.isValidJavaIdentifier(entry.getKey()) ?
+                            entry.getKey() : entry.getKey() + "_field";
+            _writer.append("public final CIField ", identifier, " = new CIField(this, \"", entry.getKey(), "\"");
+            for (final String profile : entry.getValue()) {
+                _writer.append(", \"", profile, "\"");
+            }
+            _writer.line(");");
+        }
+        _writer.endBlock().line();
     }
 
     /**
@@ -395,17 +619,7 @@ public class GenerateCIClassMojo
             }
         }
 
-        final StringBuilder java = new StringBuilder()
-                .append("//CHECKSTYLE:OFF\n")
-                .append("package ").append(ciPackage).append(";\n")
-                .append("import org.efaps.admin.program.esjp.EFapsApplication;\n")
-                .append("import org.efaps.ci.CIAttribute;\n")
-                .append("import org.efaps.ci.CIStatus;\n")
-                .append("import org.efaps.ci.CIType;\n\n")
-                .append(getClassComment())
-                .append("@EFapsApplication(\"").append(_appName).append("\")\n")
-                .append("public final class CI").append(ciName).append("\n{\n");
-
+        final List<CIMember> members = new ArrayList<>();
         for (final Entry<String, ITypeCI> entry : types.entrySet()) {
             final ITypeDefintion def = entry.getValue().getDefinitions().get(0);
             final String name = def.getName();
@@ -422,75 +636,241 @@ public class GenerateCIClassMojo
                     parentType = parentType.replaceAll(ciTypeRegex == null
                                     ? ciName + "_" : ciTypeRegex, ciTypeReplacement);
                 }
-                parentType = "_" + parentType;
                 if (!types.containsKey(def.getParent())) {
                     final String parentClass = def.getParent().replaceAll(ciParentRegex, ciParentReplacment);
-                    parentType = "org.efaps.esjp.ci.CI" + parentClass + "." + parentType;
+                    parentType = "org.efaps.esjp.ci.CI" + parentClass + "._" + parentType;
+                } else if (CILayout.SHARDED.equals(ciLayout)) {
+                    // the parent is declared in its own shard
+                    parentType = "CI" + ciName + "_" + parentType + "._" + parentType;
+                } else {
+                    parentType = "_" + parentType;
                 }
             }
+            final String className = typeName;
+            final String extendClass = parentType == null ? "CIType" : parentType;
+            members.add(new CIMember(typeName, entry.getValue().getUuid(),
+                            _writer -> writeTypeClass(_writer, className, extendClass, entry.getValue())));
+        }
+        writeCIClass(_appName, "CI" + ciName, members, "org.efaps.ci.CIAttribute", "org.efaps.ci.CIStatus",
+                        "org.efaps.ci.CIType");
+        addToIndex(CIKind.TYPE, members);
+    }
 
-            java.append("    public static final _").append(typeName).append(" ").append(typeName)
-                .append(" = new _").append(typeName).append("(\"").append(entry.getValue().getUuid())
-                .append("\");\n")
-                .append("    public static class _").append(typeName).append(" extends ")
-                .append(parentType == null ? "CIType" : parentType)
-                .append("\n    {\n")
-                .append("        protected _").append(typeName).append("(final String _uuid)\n        {\n")
-                .append("            super(_uuid);")
-                .append("\n        }\n");
-
-            final Map<String, List<String>> uniques = new TreeMap<>();
-            for (final ITypeDefintion typeDef : entry.getValue().getDefinitions()) {
-                for (final IUniqueCI unique : typeDef.getUniques()) {
-                    List<String> profiles;
-                    if (uniques.containsKey(unique.getIdentifier())) {
-                        profiles = uniques.get(unique.getIdentifier());
-                    } else {
-                        profiles = new ArrayList<>();
-                    }
-                    profiles.addAll(typeDef.getProfiles());
-                    uniques.put(unique.getIdentifier(), profiles);
+    /**
+     * Write the class for a type.
+     *
+     * @param _writer the writer
+     * @param _typeName name of the type
+     * @param _extendClass class that is extended
+     * @param _typeCI the type
+     * @throws IOException on error
+     */
+    private void writeTypeClass(final JavaSourceWriter _writer,
+                                final String _typeName,
+                                final String _extendClass,
+                                final ITypeCI _typeCI)
+        throws IOException
+    {
+        _writer.line("public static class _", _typeName, " extends ", _extendClass).beginBlock()
+            .line("protected _", _typeName, "(final String _uuid)").beginBlock()
+            .line("super(_uuid);").endBlock();
+
+        final ITypeDefintion def = _typeCI.getDefinitions().get(0);
+        final Map<String, List<String>> uniques = new TreeMap<>();
+        for (final ITypeDefintion typeDef : _typeCI.getDefinitions()) {
+            for (final IUniqueCI unique : typeDef.getUniques()) {
+                List<String> profiles;
+                if (uniques.containsKey(unique.getIdentifier())) {
+                    profiles = uniques.get(unique.getIdentifier());
+                } else {
+                    profiles = new ArrayList<>();
                 }
+                profiles.addAll(typeDef.getProfiles());
+                uniques.put(unique.getIdentifier(), profiles);
             }
-            for (final Entry<String, List<String>> attrEntry : uniques.entrySet()) {
-                if (def instanceof StatusCIDefinition) {
-                    // check if the attribute name can be used in java, if not
-                    // extend the name
-                    final String identifier = NameUtil.isValidJavaIdentifier(attrEntry.getKey())
-                                    ? attrEntry.getKey() : attrEntry.getKey() + "_ci";
-                    java.append("        public final CIStatus ").append(identifier)
-                            .append(" = new CIStatus(this, \"").append(attrEntry.getKey()).append("\"");
-                    for (final String profile : attrEntry.getValue()) {
-                        java.append(", \"").append(profile).append("\"");
-                    }
-                    java.append(");\n");
-                } else if (!"Type".equals(attrEntry.getKey())
-                                && !"OID".equals(attrEntry.getKey()) && !"ID".equals(attrEntry.getKey())) {
-                    // check if the attribute name can be used in java, if not
-                    // extend the name
-                    final String identifier = NameUtil.isValidJavaIdentifier(attrEntry.getKey())
-                                    ? attrEntry.getKey() : attrEntry.getKey() + "_ci";
-                    java.append("        public final CIAttribute ").append(identifier)
-                            .append(" = new CIAttribute(this, \"").append(attrEntry.getKey()).append("\"");
-                    for (final String profile : attrEntry.getValue()) {
-                        java.append(", \"").append(profile).append("\"");
-                    }
-                    java.append(");\n");
+        }
+        for (final Entry<String, List<String>> attrEntry : uniques.entrySet()) {
+            if (def instanceof StatusCIDefinition) {
+                // check if the attribute name can be used in java, if not
+                // extend the name
+                final String identifier = NameUtil.isValidJavaIdentifier(attrEntry.getKey())
+                                ? attrEntry.getKey() : attrEntry.getKey() + "_ci";
+                _writer.append("public final CIStatus ", identifier, " = new CIStatus(this, \"",
+                                attrEntry.getKey(), "\"");
+                for (final String profile : attrEntry.getValue()) {
+                    _writer.append(", \"", profile, "\"");
+                }
+                _writer.line(");");
+            } else if (!"Type".equals(attrEntry.getKey())
+                            && !"OID".equals(attrEntry.getKey()) && !"ID".equals(attrEntry.getKey())) {
+                // check if the attribute name can be used in java, if not
+                // extend the name
+                final String identifier = NameUtil.isValidJavaIdentifier(attrEntry.getKey())
+                                ? attrEntry.getKey() : attrEntry.getKey() + "_ci";
+                _writer.append("public final CIAttribute ", identifier, " = new CIAttribute(this, \"",
+                                attrEntry.getKey(), "\"");
+                for (final String profile : attrEntry.getValue()) {
+                    _writer.append(", \"", profile, "\"");
+                }
+                _writer.line(");");
+            }
+        }
+        _writer.endBlock().line();
+    }
+
+    /**
+     * Write a CI class with its members in the {@link #ciLayout}.
+     *
+     * @param _appName the app name
+     * @param _className name of the CI class
+     * @param _members the members
+     * @param _imports the imports besides the EFapsApplication
+     * @throws IOException on error during writing of the files
+     */
+    private void writeCIClass(final String _appName,
+                              final String _className,
+                              final List<CIMember> _members,
+                              final String... _imports)
+        throws IOException
+    {
+        final List<String> holderNames = new ArrayList<>();
+        if (!CILayout.EAGER.equals(ciLayout)) {
+            for (final CIMember member : _members) {
+                holderNames.add(_className + "_" + member.name);
+            }
+        }
+        if (CILayout.SHARDED.equals(ciLayout)) {
+            // field and class are inherited by the CI class
+            for (final CIMember member : _members) {
+                final String holderName = _className + "_" + member.name;
+                try (JavaSourceWriter shard = newWriter(holderName)) {
+                    writeHeader(shard, _appName, _imports);
+                    shard.line("public interface ", holderName).beginBlock()
+                        .line("_", member.name, " ", member.name, " = new _", member.name, "(\"", member.uuid, "\");");
+                    member.body.write(shard);
+                    shard.endBlock();
+                    commit(shard);
                 }
             }
-            java.append("    }\n\n");
         }
-        java.append("}\n");
+        try (JavaSourceWriter java = newWriter(_className)) {
+            writeHeader(java, _appName, _imports);
+            java.line("public final class ", _className);
+            if (!holderNames.isEmpty()) {
+                java.indent().line("implements ", String.join(",\n    ", holderNames)).outdent();
+            }
+            java.beginBlock();
+            for (final CIMember member : _members) {
+                if (CILayout.EAGER.equals(ciLayout)) {
+                    java.line("public static final _", member.name, " ", member.name, " = new _", member.name,
+                                    "(\"", member.uuid, "\");");
+                }
+                if (!CILayout.SHARDED.equals(ciLayout)) {
+                    member.body.write(java);
+                }
+            }
+            java.endBlock();
+            if (CILayout.LAZY.equals(ciLayout)) {
+                // the field is inherited by the CI class, but the JVM only
+                // initializes the declaring interface on access
+                for (final CIMember member : _members) {
+                    java.line().line("interface ", _className, "_", member.name).beginBlock()
+                        .line(_className, "._", member.name, " ", member.name, " = new ", _className, "._",
+                                        member.name, "(\"", member.uuid, "\");")
+                        .endBlock();
+                }
+            }
+            commit(java);
+        }
+        deleteShards(_className, CILayout.SHARDED.equals(ciLayout) ? holderNames : Collections.emptyList());
+    }
+
+    /**
+     * Write the header of a generated file up to the declaration of the
+     * class.
+     *
+     * @param _writer the writer
+     * @param _appName the app name
+     * @param _imports the imports besides the EFapsApplication
+     * @throws IOException on error
+     */
+    private void writeHeader(final JavaSourceWriter _writer,
+                             final String _appName,
+                             final String... _imports)
+        throws IOException
+    {
+        _writer.line("//CHECKSTYLE:OFF")
+            .packageDeclaration(ciPackage)
+            .imports("org.efaps.admin.program.esjp.EFapsApplication")
+            .imports(_imports)
+            .line()
+            .append(getClassComment())
+            .line("@EFapsApplication(\"", _appName, "\")");
+    }
 
-        getOutputDirectory().mkdir();
+    /**
+     * Delete the shards of a CI class that were not generated by this
+     * execution, e.g. of a removed type or if the layout changed.
+     *
+     * @param _className name of the CI class
+     * @param _shardNames names of the current shards
+     */
+    private void deleteShards(final String _className,
+                              final List<String> _shardNames)
+    {
+        final File[] files = getJavaFile(_className).getParentFile().listFiles(
+                        (_dir, _name) -> _name.startsWith(_className + "_") && _name.endsWith(".java"));
+        if (files != null) {
+            for (final File file : files) {
+                if (!_shardNames.contains(file.getName().substring(0, file.getName().length() - 5))) {
+                    LOG.debug("Deleting shard: {}", file);
+                    FileUtils.deleteQuietly(file);
+                }
+            }
+        }
+    }
 
+    /**
+     * Gets the file for a generated class.
+     *
+     * @param _className name of the class
+     * @return the file
+     */
+    private File getJavaFile(final String _className)
+    {
         final String folders = ciPackage.replace(".", File.separator);
-        final File srcFolder = new File(getOutputDirectory(), folders);
-        srcFolder.mkdirs();
+        return new File(new File(getOutputDirectory(), folders), _className + ".java");
+    }
 
-        final File javaFile = new File(srcFolder, "CI" + ciName + ".java");
+    /**
+     * Open a writer for a generated class. The date of the class comment is
+     * ignored when the new content is compared with the existing file.
+     *
+     * @param _className name of the class
+     * @return the writer
+     * @throws IOException on error
+     */
+    private JavaSourceWriter newWriter(final String _className)
+        throws IOException
+    {
+        return new JavaSourceWriter(getJavaFile(_className), DATE_LINE);
+    }
 
-        FileUtils.writeStringToFile(javaFile, java.toString(), StandardCharsets.UTF_8);
+    /**
+     * Commit a generated class. The file is only written if the content
+     * changed, so that the compiler does not see a modified source.
+     *
+     * @param _writer the writer
+     * @throws IOException on error
+     */
+    private void commit(final JavaSourceWriter _writer)
+        throws IOException
+    {
+        if (_writer.commit()) {
+            getMetrics().getPhase("generate").addFile(_writer.getFile().length());
+        } else {
+            LOG.debug("Unchanged: {}", _writer.getFile());
+        }
     }
 
     private StringBuilder getClassComment()
@@ -518,85 +898,308 @@ public class GenerateCIClassMojo
     private void buildCIMsgPhrase(final String _appName)
         throws IOException
     {
-        final StringBuilder java = new StringBuilder()
-                        .append("//CHECKSTYLE:OFF\n")
-                        .append("package ").append(ciPackage).append(";\n")
-                        .append("import org.efaps.admin.program.esjp.EFapsApplication;\n")
-                        .append("import org.efaps.ci.*;\n\n")
-                        .append(getClassComment())
-                        .append("@EFapsApplication(\"").append(_appName).append("\")\n")
-                        .append("public final class CIMsg").append(ciName)
-                        .append("\n{\n");
-
-        for (final MsgPhraseCI msgPhci : msgPhraseCIs) {
-             String name = msgPhci.getName().replaceAll(ciUnallowedRegex, ciUnallowedReplacement);
-             name = name.replaceAll(ciTypeRegex == null ? ciName + "_" : ciTypeRegex,
-                             ciTypeReplacement);
-             java.append("    public static final _").append(name).append(" ").append(name)
-                 .append(" = new _").append(name).append("(\"").append(msgPhci.getUuid()).append("\");\n")
-                 .append("    public static class _").append(name).append(" extends CIMsgPhrase")
-                 .append("\n    {\n")
-                 .append("        protected _").append(name).append("(final String _uuid)\n        {\n")
-                 .append("            super(_uuid);")
-                 .append("\n        }\n");
-             java.append("    }\n\n");
+        try (JavaSourceWriter java = newWriter("CIMsg" + ciName)) {
+            writeHeader(java, _appName, "org.efaps.ci.*");
+            java.line("public final class CIMsg", ciName).beginBlock();
+            for (final MsgPhraseCI msgPhci : msgPhraseCIs) {
+                String name = msgPhci.getName().replaceAll(ciUnallowedRegex, ciUnallowedReplacement);
+                name = name.replaceAll(ciTypeRegex == null ? ciName + "_" : ciTypeRegex,
+                                ciTypeReplacement);
+                addToIndex(CIKind.MSGPHRASE, name, msgPhci.getUuid());
+                java.line("public static final _", name, " ", name, " = new _", name, "(\"", msgPhci.getUuid(),
+                                "\");")
+                    .line("public static class _", name, " extends CIMsgPhrase").beginBlock()
+                    .line("protected _", name, "(final String _uuid)").beginBlock()
+                    .line("super(_uuid);").endBlock()
+                    .endBlock().line();
+            }
+            java.endBlock();
+            commit(java);
         }
-         java.append("}\n");
+    }
 
-        getOutputDirectory().mkdir();
 
-        final String folders = ciPackage.replace(".", File.separator);
-        final File srcFolder = new File(getOutputDirectory(), folders);
-        srcFolder.mkdirs();
+    /**
+     * Builds the ci msg phrase.
+     *
+     * @param _appName the app name
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void buildCINumGen(final String _appName)
+        throws IOException
+    {
+        try (JavaSourceWriter java = newWriter("CINumGen" + ciName)) {
+            writeHeader(java, _appName, "org.efaps.ci.*");
+            java.line("public final class CINumGen", ciName).beginBlock();
+            for (final NumGenCI numGenci : numGenCIs) {
+                String name = numGenci.getName().replaceAll(ciUnallowedRegex, ciUnallowedReplacement);
+                name = name.replaceAll(ciTypeRegex == null ? ciName + "_" : ciTypeRegex,
+                                ciTypeReplacement);
+                addToIndex(CIKind.NUMGEN, name, numGenci.getUuid());
+                java.line("public static final _", name, " ", name, " = new _", name, "(\"", numGenci.getUuid(),
+                                "\");")
+                    .line("public static class _", name, " extends CINumGen").beginBlock()
+                    .line("protected _", name, "(final String _uuid)").beginBlock()
+                    .line("super(_uuid);").endBlock()
+                    .endBlock().line();
+            }
+            java.endBlock();
+            commit(java);
+        }
+    }
 
-        final File javaFile = new File(srcFolder, "CIMsg" + ciName + ".java");
+    /**
+     * Add the members of a CI class to the index.
+     *
+     * @param _kind kind of the CI class
+     * @param _members the members
+     */
+    private void addToIndex(final CIKind _kind,
+                            final List<CIMember> _members)
+    {
+        for (final CIMember member : _members) {
+            addToIndex(_kind, member.name, member.uuid);
+        }
+    }
 
-        FileUtils.writeStringToFile(javaFile, java.toString(), StandardCharsets.UTF_8);
+    /**
+     * Add a CI object to the index.
+     *
+     * @param _kind kind of the CI class
+     * @param _name name of the field in the CI class
+     * @param _uuid UUID of the CI object
+     */
+    private void addToIndex(final CIKind _kind,
+                            final String _name,
+                            final String _uuid)
+    {
+        try {
+            ciIndex.add(new CIIndexEntry(_kind, _name, UUID.fromString(_uuid.trim())));
+        } catch (final IllegalArgumentException | NullPointerException e) {
+            LOG.warn("Not added to the CI index, invalid UUID for {}: {}", _name, _uuid);
+        }
     }
 
+    /**
+     * Gets the resource containing the index from UUID to CI object.
+     *
+     * @return the file
+     */
+    private File getCIIndexFile()
+    {
+        return new File(resourceDirectory, "META-INF/efaps/ci-index/" + ciName + ".bin");
+    }
 
     /**
-     * Builds the ci msg phrase.
+     * Build the index from UUID to CI object and the class to access it.
+     * The index is a binary resource with the entries sorted by UUID: for
+     * each entry the most and least significant bits, the ordinal of the
+     * {@link CIKind} and the name of the field.
      *
      * @param _appName the app name
-     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws IOException on error
      */
-    private void buildCINumGen(final String _appName)
+    private void buildCIIndex(final String _appName)
         throws IOException
     {
-        final StringBuilder java = new StringBuilder()
-                        .append("//CHECKSTYLE:OFF\n")
-                        .append("package ").append(ciPackage).append(";\n")
-                        .append("import org.efaps.admin.program.esjp.EFapsApplication;\n")
-                        .append("import org.efaps.ci.*;\n\n")
-                        .append(getClassComment())
-                        .append("@EFapsApplication(\"").append(_appName).append("\")\n")
-                        .append("public final class CINumGen").append(ciName)
-                        .append("\n{\n");
-
-        for (final NumGenCI numGenci : numGenCIs) {
-             String name = numGenci.getName().replaceAll(ciUnallowedRegex, ciUnallowedReplacement);
-             name = name.replaceAll(ciTypeRegex == null ? ciName + "_" : ciTypeRegex,
-                             ciTypeReplacement);
-             java.append("    public static final _").append(name).append(" ").append(name)
-                 .append(" = new _").append(name).append("(\"").append(numGenci.getUuid()).append("\");\n")
-                 .append("    public static class _").append(name).append(" extends CINumGen")
-                 .append("\n    {\n")
-                 .append("        protected _").append(name).append("(final String _uuid)\n        {\n")
-                 .append("            super(_uuid);")
-                 .append("\n        }\n");
-             java.append("    }\n\n");
+        ciIndex.sort((_entry1, _entry2) -> {
+            final int ret = Long.compare(_entry1.uuid.getMostSignificantBits(),
+                            _entry2.uuid.getMostSignificantBits());
+            return ret == 0 ? Long.compare(_entry1.uuid.getLeastSignificantBits(),
+                            _entry2.uuid.getLeastSignificantBits()) : ret;
+        });
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(CI_INDEX_MAGIC);
+            out.writeInt(ciIndex.size());
+            for (final CIIndexEntry entry : ciIndex) {
+                out.writeLong(entry.uuid.getMostSignificantBits());
+                out.writeLong(entry.uuid.getLeastSignificantBits());
+                out.writeByte(entry.kind.ordinal());
+                out.writeUTF(entry.name);
+            }
+        }
+        final File indexFile = getCIIndexFile();
+        if (indexFile.exists() && Arrays.equals(bytes.toByteArray(), FileUtils.readFileToByteArray(indexFile))) {
+            LOG.debug("Unchanged: {}", indexFile);
+        } else {
+            FileUtils.writeByteArrayToFile(indexFile, bytes.toByteArray());
+            getMetrics().getPhase("generate").addFile(indexFile.length());
         }
-         java.append("}\n");
 
-        getOutputDirectory().mkdir();
+        final String className = "CIIndex" + ciName;
+        try (JavaSourceWriter java = newWriter(className)) {
+            writeHeader(java, _appName, "java.io.BufferedInputStream", "java.io.DataInputStream",
+                            "java.io.IOException", "java.io.InputStream", "java.util.UUID");
+            java.line("public final class ", className).beginBlock()
+                .line("public enum Kind").beginBlock();
+            for (final CIKind kind : CIKind.values()) {
+                java.line(kind.name(), "(\"", ciPackage, ".", kind.classNamePrefix, ciName, "\")",
+                                kind.ordinal() == CIKind.values().length - 1 ? ";" : ",");
+            }
+            java.line()
+                .line("public final String className;")
+                .line()
+                .line("Kind(final String _className)").beginBlock()
+                .line("className = _className;")
+                .endBlock()
+                .endBlock()
+                .line()
+                .line("private static final long[] MSB;")
+                .line("private static final long[] LSB;")
+                .line("private static final Kind[] KINDS;")
+                .line("private static final String[] NAMES;")
+                .line()
+                .line("static").beginBlock()
+                .line("try (InputStream stream = ", className, ".class.getResourceAsStream(\"/META-INF/efaps/ci-index/",
+                                ciName, ".bin\");")
+                .line("     DataInputStream in = new DataInputStream(new BufferedInputStream(stream)))").beginBlock()
+                .line("if (in.readInt() != 0x", Integer.toHexString(CI_INDEX_MAGIC), ")").beginBlock()
+                .line("throw new IOException(\"Invalid CI index\");")
+                .endBlock()
+                .line("final int count = in.readInt();")
+                .line("MSB = new long[count];")
+                .line("LSB = new long[count];")
+                .line("KINDS = new Kind[count];")
+                .line("NAMES = new String[count];")
+                .line("for (int i = 0; i < count; i++)").beginBlock()
+                .line("MSB[i] = in.readLong();")
+                .line("LSB[i] = in.readLong();")
+                .line("KINDS[i] = Kind.values()[in.readByte()];")
+                .line("NAMES[i] = in.readUTF();")
+                .endBlock()
+                .endBlock()
+                .line("catch (final IOException | NullPointerException e)").beginBlock()
+                .line("throw new ExceptionInInitializerError(e);")
+                .endBlock()
+                .endBlock()
+                .line()
+                .line("private ", className, "()").beginBlock()
+                .endBlock()
+                .line()
+                .line("public static Kind getKind(final UUID _uuid)").beginBlock()
+                .line("final int pos = indexOf(_uuid);")
+                .line("return pos < 0 ? null : KINDS[pos];")
+                .endBlock()
+                .line()
+                .line("public static String getName(final UUID _uuid)").beginBlock()
+                .line("final int pos = indexOf(_uuid);")
+                .line("return pos < 0 ? null : NAMES[pos];")
+                .endBlock()
+                .line()
+                .line("public static Object getCI(final UUID _uuid)")
+                .indent().line("throws ReflectiveOperationException").outdent()
+                .beginBlock()
+                .line("final int pos = indexOf(_uuid);")
+                .line("return pos < 0 ? null : Class.forName(KINDS[pos].className).getField(NAMES[pos]).get(null);")
+                .endBlock()
+                .line()
+                .line("private static int indexOf(final UUID _uuid)").beginBlock()
+                .line("final long msb = _uuid.getMostSignificantBits();")
+                .line("final long lsb = _uuid.getLeastSignificantBits();")
+                .line("int low = 0;")
+                .line("int high = MSB.length - 1;")
+                .line("while (low <= high)").beginBlock()
+                .line("final int mid = (low + high) >>> 1;")
+                .line("int cmp = Long.compare(MSB[mid], msb);")
+                .line("if (cmp == 0)").beginBlock()
+                .line("cmp = Long.compare(LSB[mid], lsb);")
+                .endBlock()
+                .line("if (cmp < 0)").beginBlock()
+                .line("low = mid + 1;")
+                .endBlock()
+                .line("else if (cmp > 0)").beginBlock()
+                .line("high = mid - 1;")
+                .endBlock()
+                .line("else").beginBlock()
+                .line("return mid;")
+                .endBlock()
+                .endBlock()
+                .line("return -1;")
+                .endBlock()
+                .endBlock();
+            commit(java);
+        }
+    }
 
-        final String folders = ciPackage.replace(".", File.separator);
-        final File srcFolder = new File(getOutputDirectory(), folders);
-        srcFolder.mkdirs();
+    /**
+     * Writes the class of a member.
+     */
+    @FunctionalInterface
+    private interface MemberWriter
+    {
+
+        /**
+         * Write the class.
+         *
+         * @param _writer the writer positioned in the body of the CI class
+         * @throws IOException on error
+         */
+        void write(JavaSourceWriter _writer)
+            throws IOException;
+    }
+
+    /**
+     * Entry of the index from UUID to CI object.
+     */
+    private static final class CIIndexEntry
+    {
+
+        /** Kind of the CI class. */
+        private final CIKind kind;
+
+        /** Name of the field in the CI class. */
+        private final String name;
+
+        /** UUID of the CI object. */
+        private final UUID uuid;
 
-        final File javaFile = new File(srcFolder, "CINumGen" + ciName + ".java");
+        /**
+         * Instantiates a new entry.
+         *
+         * @param _kind kind of the CI class
+         * @param _name name of the field
+         * @param _uuid UUID of the CI object
+         */
+        CIIndexEntry(final CIKind _kind,
+                     final String _name,
+                     final UUID _uuid)
+        {
+            kind = _kind;
+            name = _name;
+            uuid = _uuid;
+        }
+    }
+
+    /**
+     * Member of a generated CI class.
+     */
+    private static final class CIMember
+    {
+
+        /** Name of the field, the class has the name with a leading underscore. */
+        private final String name;
+
+        /** UUID of the CI object. */
+        private final String uuid;
+
+        /** Writes the class. */
+        private final MemberWriter body;
 
-        FileUtils.writeStringToFile(javaFile, java.toString(), StandardCharsets.UTF_8);
+        /**
+         * Instantiates a new member.
+         *
+         * @param _name name of the field
+         * @param _uuid UUID of the CI object
+         * @param _body writes the class
+         */
+        CIMember(final String _name,
+                 final String _uuid,
+                 final MemberWriter _body)
+        {
+            name = _name;
+            uuid = _uuid;
+            body = _body;
+        }
     }
 }
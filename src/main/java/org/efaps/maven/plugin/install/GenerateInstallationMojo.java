@@ -15,9 +15,12 @@
  */
 package org.efaps.maven.plugin.install;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.HashSet;
@@ -29,6 +32,7 @@ import java.util.TreeSet;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -36,6 +40,7 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -44,6 +49,13 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.tools.ant.DirectoryScanner;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
+import org.efaps.maven.plugin.install.digester.CIExtractor;
+import org.efaps.maven.plugin.install.digester.CIExtractor.Extent;
+import org.efaps.maven.plugin.install.digester.IBaseCI;
+import org.efaps.maven.plugin.install.digester.JarCIIndex;
+import org.efaps.maven.plugin.install.digester.RootElement;
+import org.efaps.maven.plugin.install.digester.TypeCI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Attr;
@@ -105,6 +117,20 @@ public class GenerateInstallationMojo
         GenerateInstallationMojo.DEFAULT_COPYEXCLUDES.add("**/package-info.java");
     }
 
+    /**
+     * Strategy used to evaluate the revision of the installation files.
+     */
+    public enum RevisionStrategy
+    {
+        /** The revision is the last commit that changed the file. */
+        COMMIT,
+        /**
+         * The revision is the id of the blob of the file, the date is the one
+         * of HEAD. No history is walked.
+         */
+        BLOB;
+    }
+
     /**
      * The current Maven project.
     */
@@ -167,6 +193,38 @@ public class GenerateInstallationMojo
     @Parameter(property = "skipInstallFile", defaultValue = "false")
     private boolean skipInstallFile;
 
+    /**
+     * File used to cache the revision information of the installation files
+     * between builds, so that only changed files must be resolved against
+     * the history of the repository.
+     */
+    @Parameter(property = "efaps.revisionCache",
+                    defaultValue = "${project.build.directory}/efaps/revision-cache.json")
+    private File revisionCache;
+
+    /**
+     * Use the {@link #revisionCache}.
+     */
+    @Parameter(property = "efaps.useRevisionCache", defaultValue = "true")
+    private boolean useRevisionCache;
+
+    /**
+     * Write an index of the CI items of the XML files into the jar
+     * ({@link JarCIIndex#PATH}), so that downstream builds must not parse
+     * the files again.
+     */
+    @Parameter(property = "efaps.ciIndex", defaultValue = "true")
+    private boolean ciIndex;
+
+    /**
+     * Strategy used to evaluate the revision of the installation files, one
+     * of "commit" or "blob".
+     *
+     * @see RevisionStrategy
+     */
+    @Parameter(property = "revisionStrategy", defaultValue = "commit")
+    private String revisionStrategy;
+
     /**
      * Generates the installation XML file and copies all eFaps definition
      * installation files.
@@ -177,7 +235,7 @@ public class GenerateInstallationMojo
      * @throws MojoFailureException on error
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException, MojoFailureException
     {
         copyFiles(generateInstallFile());
@@ -264,7 +322,13 @@ public class GenerateInstallationMojo
                 // alphabetical)
                 final Set<String> filesSet = new TreeSet<>(getFiles());
 
-                final Map<String, FileInfo> filemap = getFileInformations(project.getBasedir(), getEFapsDir(), filesSet);
+                final Map<String, FileInfo> filemap;
+                if (RevisionStrategy.BLOB.equals(getRevisionStrategy())) {
+                    filemap = getBlobInformations(project.getBasedir(), getEFapsDir(), filesSet);
+                } else {
+                    filemap = getFileInformations(project.getBasedir(), getEFapsDir(), filesSet,
+                                    useRevisionCache ? revisionCache : null);
+                }
 
                 for (final Entry<String, FileInfo> entry : filemap.entrySet()) {
                     final String fileName = entry.getKey();
@@ -307,19 +371,25 @@ public class GenerateInstallationMojo
                     parentDir.mkdirs();
                 }
 
-                // open transformer (to convert XML in memory to a stream).
-                final Transformer transformer = TransformerFactory.newInstance().newTransformer();
-                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-
-                // initialize StreamResult with File object to save to file
-                // flush output stream and write to file (and close file)
-                final OutputStream os = new FileOutputStream(targetInstallFileTmp);
-                final StreamResult result = new StreamResult(new OutputStreamWriter(os, targetEncoding));
-                final DOMSource source = new DOMSource(doc);
-                transformer.transform(source, result);
-                os.flush();
-                os.close();
+                try (Timer timer = startPhase("write")) {
+                    // open transformer (to convert XML in memory to a stream).
+                    final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+                    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+
+                    // initialize StreamResult with File object to save to file
+                    // flush output stream and write to file (and close file)
+                    final OutputStream os = new FileOutputStream(targetInstallFileTmp);
+                    final StreamResult result = new StreamResult(new OutputStreamWriter(os, targetEncoding));
+                    final DOMSource source = new DOMSource(doc);
+                    transformer.transform(source, result);
+                    os.flush();
+                    os.close();
+                    timer.addFile(targetInstallFileTmp.length());
                 }
+                if (ciIndex) {
+                    writeCIIndex(rootPackageTmp, filesSet);
+                }
+            }
             return rootPackageTmp;
         } catch (final MojoFailureException e) {
             throw e;
@@ -328,6 +398,66 @@ public class GenerateInstallationMojo
         }
     }
 
+    /**
+     * Write the index of the CI items of the XML files. Types are read
+     * completely, all other items only up to uuid and related files.
+     *
+     * @param _rootPackage root package include application sub directory
+     * @param _files the files of the installation
+     * @throws IOException on error
+     * @throws XMLStreamException on error
+     */
+    protected void writeCIIndex(final String _rootPackage,
+                                final Set<String> _files)
+        throws IOException, XMLStreamException
+    {
+        try (Timer timer = startPhase("ci-index")) {
+            final CIExtractor typeExtractor = new CIExtractor(TypeCI.class);
+            final CIExtractor extractor = new CIExtractor(CIExtractor.getSupportedClasses());
+            final JarCIIndex index = new JarCIIndex();
+            for (final String fileName : _files) {
+                if (fileName.toLowerCase().endsWith(".xml")) {
+                    final File file = new File(getEFapsDir(), fileName);
+                    try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+                        final String root = RootElement.sniff(stream);
+                        // a file with an unknown root element is left out,
+                        // so that it is parsed by the readers of the index
+                        if (root != null) {
+                            final IBaseCI item;
+                            if (typeExtractor.isBound(root)) {
+                                item = typeExtractor.extract(stream, Extent.COMPLETE);
+                            } else if (extractor.isBound(root)) {
+                                item = extractor.extract(stream, Extent.HEADER);
+                            } else {
+                                item = null;
+                            }
+                            // entries of a jar are always separated by slashes
+                            index.add(FilenameUtils.separatorsToUnix(_rootPackage + fileName), root, item);
+                        }
+                    }
+                    timer.addFile(file.length());
+                }
+            }
+            index.write(new File(targetDirectory, JarCIIndex.PATH));
+        }
+    }
+
+    /**
+     * Gets the revision strategy.
+     *
+     * @return the revision strategy
+     * @throws MojoFailureException if the strategy is not known
+     */
+    protected RevisionStrategy getRevisionStrategy()
+        throws MojoFailureException
+    {
+        try {
+            return RevisionStrategy.valueOf(revisionStrategy.trim().toUpperCase());
+        } catch (final IllegalArgumentException e) {
+            throw new MojoFailureException("Unknown revisionStrategy '" + revisionStrategy + "'", e);
+        }
+    }
+
     /**
      * Copy all eFaps installation files from the eFaps root directory in the
      * related target classes directory.
@@ -341,17 +471,19 @@ public class GenerateInstallationMojo
     protected void copyFiles(final String _rootPackage)
         throws MojoExecutionException
     {
-        try {
+        try (Timer timer = startPhase("copy")) {
             for (final String fileName : getCopyFiles(getEFapsDir())) {
                 final File srcFile = new File(getEFapsDir(), fileName);
                 final File dstFile = new File(targetDirectory, _rootPackage + fileName);
                 FileUtils.copyFile(srcFile, dstFile, true);
+                timer.addFile(srcFile.length());
             }
             if (getOutputDirectory().exists()) {
                 for (final String fileName : getCopyFiles(getOutputDirectory())) {
                     final File srcFile = new File(getOutputDirectory(), fileName);
                     final File dstFile = new File(targetDirectory, _rootPackage + fileName);
                     FileUtils.copyFile(srcFile, dstFile, true);
+                    timer.addFile(srcFile.length());
                 }
             }
         } catch (final IOException e) {
@@ -15,38 +15,58 @@
  */
 package org.efaps.maven.plugin.install;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URLConnection;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
 
-import org.apache.commons.digester3.Digester;
-import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
-import org.apache.commons.digester3.binder.DigesterLoader;
 import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
+import org.efaps.maven.plugin.install.digester.CIExtractor;
+import org.efaps.maven.plugin.install.digester.CIExtractor.Extent;
+import org.efaps.maven.plugin.install.digester.RootElement;
 import org.efaps.maven.plugin.install.digester.IAttributeCI;
+import org.efaps.maven.plugin.install.digester.IBaseCI;
 import org.efaps.maven.plugin.install.digester.ITypeDefintion;
+import org.efaps.maven.plugin.install.digester.JarCIIndex;
 import org.efaps.maven.plugin.install.digester.StatusGroupCI;
 import org.efaps.maven.plugin.install.digester.TypeCI;
 import org.efaps.update.FileType;
 import org.efaps.update.Install.InstallFile;
 import org.efaps.update.version.Application;
 import org.efaps.update.version.Dependency;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
@@ -57,6 +77,18 @@ import org.xml.sax.SAXException;
 public class GenerateJmsClassMojo
     extends AbstractEFapsInstallMojo
 {
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(GenerateJmsClassMojo.class);
+
+    /**
+     * Name of the manifest in the output directory. It contains the path of
+     * every generated class and the fingerprint of its inputs.
+     */
+    private static final String MANIFEST = "efaps-jmsclass.manifest";
+
     /**
      * The base package name.
      */
@@ -96,14 +128,39 @@ public class GenerateJmsClassMojo
     private MavenProject project;
 
     /**
-     * Mapping between the Types of eFaps and the package the responding class is in.
+     * The directory the jaxb.index files are generated in. The directory is
+     * registered as a resource directory of the project.
      */
-    private final Map<String, String> type2package = new HashMap<>();
+    @Parameter(defaultValue = "${project.build.directory}/generated-resources/efaps")
+    private File resourceDirectory;
 
     /**
-     * Mapping between the Types of eFaps and the responding class.
+     * Generate a reader and writer for StAX in each class, that access the
+     * fields directly instead of the reflection used by JAXB. The attributes
+     * themselves are read and written by an implementation of the generated
+     * interface StaxCodec.
      */
-    private final Map<String, String> type2ClassName = new TreeMap<>();
+    @Parameter(property = "efaps.jmsclass.stax", defaultValue = "false")
+    private boolean jmsStax;
+
+    /**
+     * The descriptor of this plugin, the version is part of the fingerprints.
+     */
+    @Parameter(defaultValue = "${plugin}", required = true, readonly = true)
+    private PluginDescriptor plugin;
+
+    /**
+     * Generate all classes, even if their inputs did not change since the
+     * last generation.
+     */
+    @Parameter(property = "efaps.jmsclass.force", defaultValue = "false")
+    private boolean force;
+
+    /**
+     * Extractor for the Types and StatusGroups, confined to the thread.
+     */
+    private final ThreadLocal<CIExtractor> extractor = ThreadLocal.withInitial(
+                    () -> new CIExtractor(TypeCI.class, StatusGroupCI.class));
 
 
     /**
@@ -121,17 +178,16 @@ public class GenerateJmsClassMojo
      * @throws MojoExecutionException if installation failed
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException
     {
         try {
             init(false);
             getOutputDirectory().mkdir();
-            final String folders = jmsPackage.replace(".", File.separator);
-            final File srcFolder = new File(getOutputDirectory(), folders);
-            srcFolder.mkdirs();
 
-            final Application appl = Application.getApplicationFromSource(
+            final Application appl;
+            try (Timer timer = startPhase("scan")) {
+                appl = Application.getApplicationFromSource(
                             getVersionFile(),
                             getClasspathElements(),
                             getEFapsDir(),
@@ -139,147 +195,465 @@ public class GenerateJmsClassMojo
                             getIncludes(),
                             getExcludes(),
                             getTypeMapping());
+            }
 
+            // the types of the dependencies first, so that the application
+            // overwrites them
+            final List<InstallFile> files = new ArrayList<>();
+            // every file is read only with the CI index of its own jar
+            final Map<InstallFile, JarCIIndex> jarIndexes = new IdentityHashMap<>();
             for (final Dependency dependency : appl.getDependencies()) {
-                dependency.resolve();
-                final Application dependApp = Application.getApplicationFromJarFile(
+                final Application dependApp;
+                final JarCIIndex jarIndex;
+                try (Timer timer = startPhase("dependencies")) {
+                    dependency.resolve();
+                    dependApp = Application.getApplicationFromJarFile(
                                 dependency.getJarFile(), getClasspathElements());
-                final List<InstallFile> files = dependApp.getInstall().getFiles();
-                for (final InstallFile file : files) {
-                    if (file.getType() != null && file.getType().equals(FileType.XML)) {
-                        readFile(srcFolder, file);
+                    jarIndex = JarCIIndex.read(getJarRegistry().getJarFile(dependency.getJarFile()));
+                    if (jarIndex == null) {
+                        LOG.debug("No CI index in {}", dependency.getJarFile());
                     }
+                    timer.addFile(dependency.getJarFile().length());
                 }
-            }
-
-            final List<InstallFile> files = appl.getInstall().getFiles();
-            for (final InstallFile file : files) {
-                if (file.getType() != null && file.getType().equals(FileType.XML)) {
-                    readFile(srcFolder, file);
+                for (final InstallFile file : dependApp.getInstall().getFiles()) {
+                    files.add(file);
+                    if (jarIndex != null) {
+                        jarIndexes.put(file, jarIndex);
+                    }
                 }
             }
+            files.addAll(appl.getInstall().getFiles());
+
+            final ExecutorService executor = Executors.newFixedThreadPool(getThreads());
+            try {
+                final TypeIndex index = index(executor, files, jarIndexes);
+                generate(executor, index);
+            } finally {
+                executor.shutdownNow();
+            }
             project.addCompileSourceRoot(getOutputDirectory().getAbsolutePath());
+            final Resource resource = new Resource();
+            resource.setDirectory(resourceDirectory.getAbsolutePath());
+            project.addResource(resource);
         } catch (final Exception e) {
             throw new MojoExecutionException("Could not execute SourceInstall script", e);
         }
     }
 
-    private void readFile(final File _srcFolder,
-                          final InstallFile _file)
-        throws MojoExecutionException
+    /**
+     * Parse the XML files in parallel and collect the types into an index.
+     *
+     * @param _executor the executor
+     * @param _files the files of the dependencies and the application
+     * @param _jarIndexes the CI index of the jar for the files of the
+     *            dependencies that have one
+     * @return the index
+     * @throws ExecutionException on error during parsing
+     * @throws InterruptedException if interrupted
+     */
+    private TypeIndex index(final ExecutorService _executor,
+                            final List<InstallFile> _files,
+                            final Map<InstallFile, JarCIIndex> _jarIndexes)
+        throws ExecutionException, InterruptedException
     {
-        try {
-            final DigesterLoader loader = DigesterLoader.newLoader(new FromAnnotationsRuleModule()
-            {
-                @Override
-                protected void configureRules()
-                {
-                    bindRulesFrom(TypeCI.class);
-                    bindRulesFrom(StatusGroupCI.class);
+        final Map<String, TypeCI> types = new LinkedHashMap<>();
+        final Map<String, String> type2package = new HashMap<>();
+        final Map<String, String> type2digest = new HashMap<>();
+        try (Timer timer = startPhase("parse")) {
+            final List<Future<Entry<Object, String>>> items = new ArrayList<>();
+            for (final InstallFile file : _files) {
+                if (file.getType() != null && file.getType().equals(FileType.XML)) {
+                    items.add(_executor.submit(() -> readFile(file, _jarIndexes.get(file), timer)));
                 }
-            });
-            final Digester digester = loader.newDigester();
-            final URLConnection connection = _file.getUrl().openConnection();
-            connection.setUseCaches(false);
-            final InputStream stream = connection.getInputStream();
-            final InputSource source = new InputSource(stream);
-            final Object item = digester.parse(source);
-            stream.close();
-            if (item != null) {
-                if (item instanceof final TypeCI typeItem) {
-                    final String packageName = typeItem.getPackageName(jmsPackageRegex,
-                                    jmsPackageReplacement);
-                    final String className = typeItem.getClassName(jmsClassNameRegex,
-                                    jmsClassNameReplacement);
-                    type2package.put(typeItem.getName(), packageName);
-                    type2ClassName.put(typeItem.getName(), "org.efaps.esjp.jms."
-                                    + packageName + "." + className);
-                    final File folder = new File(_srcFolder, packageName);
-                    folder.mkdirs();
-                    final File javaFile = new File(folder, className + ".java");
-                    FileUtils.writeStringToFile(javaFile, getJava(typeItem), StandardCharsets.UTF_8);
+            }
+            // merged in the order of the files, independent of the threads
+            for (final Future<Entry<Object, String>> future : items) {
+                final Entry<Object, String> item = future.get();
+                if (item != null && item.getKey() instanceof final TypeCI typeItem) {
+                    types.put(typeItem.getName(), typeItem);
+                    type2package.put(typeItem.getName(),
+                                    typeItem.getPackageName(jmsPackageRegex, jmsPackageReplacement));
+                    type2digest.put(typeItem.getName(), item.getValue());
                 }
             }
+        }
+        return new TypeIndex(types, type2package, type2digest);
+    }
 
+    /**
+     * Generate the classes for the types of the index in parallel. Classes
+     * whose inputs did not change since the last generation are skipped and
+     * classes of types that no longer exist are deleted.
+     *
+     * @param _executor the executor
+     * @param _index the index
+     * @throws ExecutionException on error during generation
+     * @throws InterruptedException if interrupted
+     * @throws IOException on error
+     */
+    private void generate(final ExecutorService _executor,
+                          final TypeIndex _index)
+        throws ExecutionException, InterruptedException, IOException
+    {
+        final File manifestFile = new File(getOutputDirectory(), MANIFEST);
+        // read also if forced, so that the classes of removed types are deleted
+        final Map<String, String> previous = readManifest(manifestFile);
+        // removed first, so that an aborted generation starts over
+        FileUtils.deleteQuietly(manifestFile);
+
+        final Map<String, TypeCI> path2type = new LinkedHashMap<>();
+        for (final TypeCI typeCI : _index.getTypes()) {
+            path2type.put(jmsPackage.replace('.', '/') + "/" + _index.getPackageName(typeCI.getName()) + "/"
+                            + typeCI.getClassName(jmsClassNameRegex, jmsClassNameReplacement) + ".java", typeCI);
+        }
+        final Map<String, String> manifest = new TreeMap<>();
+        final Set<String> packages;
+        try (Timer timer = startPhase("generate")) {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (final Entry<String, TypeCI> entry : path2type.entrySet()) {
+                final File javaFile = new File(getOutputDirectory(), entry.getKey());
+                final String fingerprint = getFingerprint(entry.getValue(), _index);
+                manifest.put(entry.getKey(), fingerprint);
+                if (force || !fingerprint.equals(previous.get(entry.getKey())) || !javaFile.exists()) {
+                    results.add(_executor.submit(() -> {
+                        try (JavaSourceWriter writer = new JavaSourceWriter(javaFile, null)) {
+                            writeJava(writer, entry.getValue(), _index);
+                            writer.commit();
+                            timer.addFile(javaFile.length());
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+            LOG.info("Generated {} of {} JMS classes", results.size(), manifest.size());
+            packages = writeRegistries(_index, timer);
+            writeStaxCodec(timer);
+        }
 
-        } catch (final SAXException e) {
-            throw new MojoExecutionException("Could not execute SourceInstall script", e);
-        } catch (final IOException e) {
-            throw new MojoExecutionException("Could not execute SourceInstall script", e);
+        for (final String path : previous.keySet()) {
+            if (!manifest.containsKey(path)) {
+                final File javaFile = new File(getOutputDirectory(), path);
+                LOG.info("Deleting JMS class of removed type: {}", path);
+                FileUtils.deleteQuietly(javaFile);
+                final String[] remaining = javaFile.getParentFile().list();
+                if (remaining != null && remaining.length == 0) {
+                    FileUtils.deleteQuietly(javaFile.getParentFile());
+                }
+            }
         }
+        deleteRegistries(packages);
+        writeManifest(manifestFile, manifest);
     }
 
-    private String getJava(final TypeCI _typeCI)
+    /**
+     * Write an ObjectFactory and a jaxb.index for each package, so that the
+     * JAXBContext can be created without searching the classpath.
+     *
+     * @param _index the index
+     * @param _timer the timer of the generate phase
+     * @return the packages
+     * @throws IOException on error
+     */
+    private Set<String> writeRegistries(final TypeIndex _index,
+                                        final Timer _timer)
+        throws IOException
     {
-        final StringBuilder ret = new StringBuilder();
-        final String packageName = _typeCI.getPackageName(jmsPackageRegex, jmsPackageReplacement);
-        final String className = _typeCI.getClassName(jmsClassNameRegex, jmsClassNameReplacement);
+        final Map<String, Map<String, TypeCI>> packages = new TreeMap<>();
+        for (final TypeCI typeCI : _index.getTypes()) {
+            packages.computeIfAbsent(_index.getPackageName(typeCI.getName()), _key -> new TreeMap<>())
+                .put(typeCI.getClassName(jmsClassNameRegex, jmsClassNameReplacement), typeCI);
+        }
+        final String folders = jmsPackage.replace('.', '/');
+        for (final Entry<String, Map<String, TypeCI>> entry : packages.entrySet()) {
+            final File factoryFile = new File(getOutputDirectory(), folders + "/" + entry.getKey()
+                            + "/ObjectFactory.java");
+            try (JavaSourceWriter writer = new JavaSourceWriter(factoryFile, null)) {
+                writer.packageDeclaration("org.efaps.esjp.jms." + entry.getKey())
+                    .line()
+                    .imports("jakarta.xml.bind.annotation.XmlRegistry",
+                             "jakarta.xml.bind.annotation.XmlSeeAlso")
+                    .line()
+                    .line("@XmlRegistry")
+                    .line("@XmlSeeAlso({ ", String.join(".class, ", entry.getValue().keySet()), ".class })")
+                    .line("public class ObjectFactory").beginBlock();
+                for (final Entry<String, TypeCI> classEntry : entry.getValue().entrySet()) {
+                    if (!classEntry.getValue().isAbstract()) {
+                        writer.line("public ", classEntry.getKey(), " create", classEntry.getKey(), "()")
+                            .beginBlock()
+                            .line("return new ", classEntry.getKey(), "();")
+                            .endBlock().line();
+                    }
+                }
+                writer.endBlock();
+                if (writer.commit()) {
+                    _timer.addFile(factoryFile.length());
+                }
+            }
+            final File indexFile = new File(resourceDirectory, folders + "/" + entry.getKey() + "/jaxb.index");
+            try (JavaSourceWriter writer = new JavaSourceWriter(indexFile, null)) {
+                for (final String className : entry.getValue().keySet()) {
+                    writer.line(className);
+                }
+                if (writer.commit()) {
+                    _timer.addFile(indexFile.length());
+                }
+            }
+        }
+        return packages.keySet();
+    }
 
+    /**
+     * Delete ObjectFactory and jaxb.index of the packages that no longer
+     * contain a type.
+     *
+     * @param _packages the current packages
+     */
+    private void deleteRegistries(final Set<String> _packages)
+    {
+        final String folders = jmsPackage.replace('.', '/');
+        for (final File baseDir : new File[] { new File(getOutputDirectory(), folders),
+                        new File(resourceDirectory, folders) }) {
+            final File[] dirs = baseDir.listFiles(File::isDirectory);
+            if (dirs != null) {
+                for (final File dir : dirs) {
+                    if (!_packages.contains(dir.getName())) {
+                        LOG.info("Deleting JAXB registry of removed package: {}", dir.getName());
+                        FileUtils.deleteQuietly(new File(dir, "ObjectFactory.java"));
+                        FileUtils.deleteQuietly(new File(dir, "jaxb.index"));
+                        final String[] remaining = dir.list();
+                        if (remaining != null && remaining.length == 0) {
+                            FileUtils.deleteQuietly(dir);
+                        }
+                    }
+                }
+            }
+        }
+    }
 
-        ret.append("package org.efaps.esjp.jms.").append(packageName).append(";\n\n")
-        .append("import jakarta.xml.bind.annotation.XmlAccessType;\n")
-        .append("import jakarta.xml.bind.annotation.XmlAccessorType;\n")
-        .append("import jakarta.xml.bind.annotation.XmlElement;\n")
-        .append("import jakarta.xml.bind.annotation.XmlElementWrapper;\n")
-        .append("import jakarta.xml.bind.annotation.XmlElements;\n")
-        .append("import jakarta.xml.bind.annotation.XmlRootElement;\n")
-        .append("import jakarta.xml.bind.annotation.XmlType;\n")
-        .append("import org.efaps.esjp.jms.AbstractObject;\n")
-        .append("import org.efaps.esjp.jms.AbstractClassificationObject;\n")
-        .append("import org.efaps.esjp.jms.annotation.*;\n")
-        .append("import org.efaps.esjp.jms.attributes.*;\n\n")
-        .append("@XmlAccessorType(XmlAccessType.NONE)\n")
-        .append("@XmlRootElement(name = \"").append(_typeCI.getName()).append("\")\n")
-        .append("@XmlType(name = \"").append(packageName).append(".")
-            .append(_typeCI.getName()).append("\")\n")
-        .append("@Type(uuid = \"").append(_typeCI.getUuid()).append("\")\n")
-        .append("public ").append(_typeCI.isAbstract() ? "abstract " : "").append("class ")
-            .append(className).append("\n");
-
-    final String extendStr;
-    if (_typeCI.getParent() == null || _typeCI.getParent().equals("Admin_Abstract")) {
-        if (_typeCI.isClassification()) {
-            extendStr = "AbstractClassificationObject";
-        } else {
-            extendStr = "AbstractObject";
+    /**
+     * Compute the fingerprint of the inputs of a class: the version of the
+     * plugin, the parameters, the content of the XML file and the package
+     * of the parent type.
+     *
+     * @param _typeCI the type
+     * @param _index the index
+     * @return the fingerprint
+     * @throws IOException on error
+     */
+    private String getFingerprint(final TypeCI _typeCI,
+                                  final TypeIndex _index)
+        throws IOException
+    {
+        final MessageDigest digest = newDigest();
+        final String[] values = { plugin.getVersion(), jmsPackage, jmsPackageRegex, jmsPackageReplacement,
+                        jmsClassNameRegex, jmsClassNameReplacement, String.valueOf(jmsStax),
+                        _index.getDigest(_typeCI.getName()),
+                        _typeCI.getParent() == null ? null : _index.getPackageName(_typeCI.getParent()) };
+        for (final String value : values) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
         }
-    } else if (GenerateJmsClassMojo.this.type2package.containsKey(_typeCI.getParent())
-                && !packageName.equals(GenerateJmsClassMojo.this.type2package.get(_typeCI.getParent()))) {
-        extendStr = GenerateJmsClassMojo.this.jmsPackage + "."
-                        + GenerateJmsClassMojo.this.type2package.get(_typeCI.getParent()) + "."
-                        + _typeCI.getParent().replaceAll(GenerateJmsClassMojo.this.jmsClassNameRegex, "");
-    } else {
-        extendStr = _typeCI.getParent().replaceAll(GenerateJmsClassMojo.this.jmsClassNameRegex, "");
+        return toHex(digest);
     }
-    ret.append("   extends ").append(extendStr).append("\n")
-        .append("{\n");
 
-    final StringBuilder getter = new StringBuilder();
+    /**
+     * Read the manifest of the last generation.
+     *
+     * @param _manifestFile the manifest
+     * @return mapping between the path of a class and its fingerprint
+     * @throws IOException on error
+     */
+    private Map<String, String> readManifest(final File _manifestFile)
+        throws IOException
+    {
+        final Map<String, String> ret = new HashMap<>();
+        if (_manifestFile.exists()) {
+            for (final String line : FileUtils.readLines(_manifestFile, StandardCharsets.UTF_8)) {
+                final int pos = line.lastIndexOf('\t');
+                if (pos > 0) {
+                    ret.put(line.substring(0, pos), line.substring(pos + 1));
+                }
+            }
+        }
+        return ret;
+    }
 
-    final Map<IAttributeCI, List<String>> attributes = new TreeMap<>();
-    for (final ITypeDefintion typeDef : _typeCI.getDefinitions()) {
-        for (final IAttributeCI attribute : typeDef.getAttributes()) {
-            List<String> profiles;
-            if (attributes.containsKey(attribute)) {
-                profiles = attributes.get(attribute);
-            } else {
-                profiles = new ArrayList<>();
+    /**
+     * Write the manifest, one line with path and fingerprint per class.
+     *
+     * @param _manifestFile the manifest
+     * @param _manifest mapping between the path of a class and its
+     *            fingerprint
+     * @throws IOException on error
+     */
+    private void writeManifest(final File _manifestFile,
+                               final Map<String, String> _manifest)
+        throws IOException
+    {
+        final List<String> lines = new ArrayList<>();
+        for (final Entry<String, String> entry : _manifest.entrySet()) {
+            lines.add(entry.getKey() + "\t" + entry.getValue());
+        }
+        FileUtils.writeLines(_manifestFile, StandardCharsets.UTF_8.name(), lines, "\n");
+    }
+
+    /**
+     * Read a file. Called in parallel. The file is only parsed if it is not
+     * contained in the CI index of its jar.
+     *
+     * @param _file the file to read
+     * @param _jarIndex the CI index of the jar of the file, null if none
+     * @param _timer the timer of the parse phase
+     * @return the item and the digest of the file, null if the file does not
+     *         contain a Type or StatusGroup
+     * @throws IOException on error
+     * @throws XMLStreamException on error
+     */
+    private Entry<Object, String> readFile(final InstallFile _file,
+                                           final JarCIIndex _jarIndex,
+                                           final Timer _timer)
+        throws IOException, XMLStreamException
+    {
+        final MessageDigest digest = newDigest();
+        Entry<Object, String> ret = null;
+        if (_jarIndex != null && _jarIndex.contains(_file.getUrl())) {
+            final IBaseCI item = _jarIndex.getItem(_file.getUrl());
+            if (item instanceof TypeCI) {
+                // the indexed content is all the class is generated from
+                digest.update(_jarIndex.getContent(_file.getUrl()).getBytes(StandardCharsets.UTF_8));
+                ret = new SimpleImmutableEntry<>(item, toHex(digest));
             }
-            profiles.addAll(typeDef.getProfiles());
-            attributes.put(attribute, profiles);
+        } else {
+            final byte[] content = getJarRegistry().read(_file.getUrl());
+            final InputStream stream = new ByteArrayInputStream(content);
+            if (extractor.get().isBound(RootElement.sniff(stream))) {
+                // all definitions are evaluated to generate the class
+                final Object item = extractor.get().extract(stream, Extent.COMPLETE);
+                digest.update(content);
+                ret = new SimpleImmutableEntry<>(item, toHex(digest));
+                _timer.addFile(content.length);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Create a new SHA-256 digest.
+     *
+     * @return the digest
+     * @throws IOException if the algorithm is not available
+     */
+    private static MessageDigest newDigest()
+        throws IOException
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
         }
     }
 
-    for (final Entry<IAttributeCI, List<String>> entry : attributes.entrySet()) {
+    /**
+     * Complete the digest.
+     *
+     * @param _digest the digest
+     * @return the hex presentation
+     */
+    private static String toHex(final MessageDigest _digest)
+    {
+        return String.format("%064x", new BigInteger(1, _digest.digest()));
+    }
 
-        if (!"Type".equals(entry.getKey().getType())
-                        && !"OID".equals(entry.getKey().getName()) && !"ID".equals(entry.getKey().getName())) {
+    /**
+     * Write the JMS class for a type.
+     *
+     * @param _writer the writer
+     * @param _typeCI the type
+     * @param _index the index of all types
+     * @throws IOException on error
+     */
+    private void writeJava(final JavaSourceWriter _writer,
+                           final TypeCI _typeCI,
+                           final TypeIndex _index)
+        throws IOException
+    {
+        final String packageName = _index.getPackageName(_typeCI.getName());
+        final String className = _typeCI.getClassName(jmsClassNameRegex, jmsClassNameReplacement);
 
+        _writer.packageDeclaration("org.efaps.esjp.jms." + packageName)
+            .line()
+            .imports("jakarta.xml.bind.annotation.XmlAccessType",
+                     "jakarta.xml.bind.annotation.XmlAccessorType",
+                     "jakarta.xml.bind.annotation.XmlElement",
+                     "jakarta.xml.bind.annotation.XmlElementWrapper",
+                     "jakarta.xml.bind.annotation.XmlElements",
+                     "jakarta.xml.bind.annotation.XmlRootElement",
+                     "jakarta.xml.bind.annotation.XmlType",
+                     "org.efaps.esjp.jms.AbstractObject",
+                     "org.efaps.esjp.jms.AbstractClassificationObject",
+                     "org.efaps.esjp.jms.annotation.*",
+                     "org.efaps.esjp.jms.attributes.*");
+        if (jmsStax) {
+            _writer.imports("javax.xml.stream.XMLStreamConstants",
+                            "javax.xml.stream.XMLStreamException",
+                            "javax.xml.stream.XMLStreamReader",
+                            "javax.xml.stream.XMLStreamWriter",
+                            "org.efaps.esjp.jms.StaxCodec");
+        }
+        _writer.line()
+            .line("@XmlAccessorType(XmlAccessType.NONE)")
+            .line("@XmlRootElement(name = \"", _typeCI.getName(), "\")")
+            .line("@XmlType(name = \"", packageName, ".", _typeCI.getName(), "\")")
+            .line("@Type(uuid = \"", _typeCI.getUuid(), "\")")
+            .line("public ", _typeCI.isAbstract() ? "abstract " : "", "class ", className);
+
+        final String extendStr;
+        if (_typeCI.getParent() == null || _typeCI.getParent().equals("Admin_Abstract")) {
+            if (_typeCI.isClassification()) {
+                extendStr = "AbstractClassificationObject";
+            } else {
+                extendStr = "AbstractObject";
+            }
+        } else if (_index.getPackageName(_typeCI.getParent()) != null
+                        && !packageName.equals(_index.getPackageName(_typeCI.getParent()))) {
+            extendStr = jmsPackage + "." + _index.getPackageName(_typeCI.getParent()) + "."
+                            + _typeCI.getParent().replaceAll(jmsClassNameRegex, "");
+        } else {
+            extendStr = _typeCI.getParent().replaceAll(jmsClassNameRegex, "");
+        }
+        _writer.line("   extends ", extendStr).beginBlock();
+
+        final Map<IAttributeCI, List<String>> attributes = new TreeMap<>();
+        for (final ITypeDefintion typeDef : _typeCI.getDefinitions()) {
+            for (final IAttributeCI attribute : typeDef.getAttributes()) {
+                List<String> profiles;
+                if (attributes.containsKey(attribute)) {
+                    profiles = attributes.get(attribute);
+                } else {
+                    profiles = new ArrayList<>();
+                }
+                profiles.addAll(typeDef.getProfiles());
+                attributes.put(attribute, profiles);
+            }
+        }
+        attributes.keySet().removeIf(_attribute -> "Type".equals(_attribute.getType())
+                        || "OID".equals(_attribute.getName()) || "ID".equals(_attribute.getName()));
+
+        // the instance variables first, followed by the getter and setter
+        for (final IAttributeCI attribute : attributes.keySet()) {
+            _writer.line("@XmlElement(name = \"", attribute.getName().toLowerCase(), "\")")
+                .line("private ", getAttributeType(attribute), getInstanceVariable(attribute).toLowerCase(), ";")
+                .line();
+        }
+        for (final Entry<IAttributeCI, List<String>> entry : attributes.entrySet()) {
             final StringBuilder profiles = new StringBuilder();
             if (!entry.getValue().isEmpty()) {
                 profiles.append(", profiles = {");
                 boolean first = true;
-                for (final String profile  : entry.getValue()) {
+                for (final String profile : entry.getValue()) {
                     if (first) {
                         first = false;
                     } else {
@@ -289,76 +663,302 @@ public class GenerateJmsClassMojo
                 }
                 profiles.append("} ");
             }
-            final StringBuilder setter = new StringBuilder();
-            ret
-                .append("    @XmlElement(name = \"").append(entry.getKey().getName().toLowerCase()).append("\")\n")
-                .append("    private ");
-            getter
-                .append("    @Attribute(name = \"").append(entry.getKey().getName())
-                    .append("\", method = MethodType.GETTER").append(profiles.length() > 0 ? profiles : "" )
-                    .append(")\n")
-                 .append("    public ");
-
-            setter
-                .append("    @Attribute(name = \"").append(entry.getKey().getName())
-                    .append("\", method = MethodType.SETTER").append(profiles.length() > 0 ? profiles : "" )
-                    .append(")\n")
-                .append("    public void ");
-
-            final String attrTypeTmp;
-            if ("String".equals(entry.getKey().getType())) {
-                attrTypeTmp = "StringAttribute ";
-            } else if ("Long".equals(entry.getKey().getType())){
-                attrTypeTmp = "LongAttribute ";
-            } else if ("Integer".equals(entry.getKey().getType())){
-                attrTypeTmp = "IntegerAttribute ";
-            } else if ("Link".equals(entry.getKey().getType())){
-                attrTypeTmp = "LinkAttribute ";
-            } else if ("LinkWithRanges".equals(entry.getKey().getType())){
-                attrTypeTmp = "LinkAttribute ";
-            } else if ("Decimal".equals(entry.getKey().getType())){
-                attrTypeTmp = "DecimalAttribute ";
-            } else if ("Date".equals(entry.getKey().getType())){
-                attrTypeTmp = "DateAttribute ";
-            } else if ("DateTime".equals(entry.getKey().getType())){
-                attrTypeTmp = "DateTimeAttribute ";
-            } else if ("Status".equals(entry.getKey().getType())){
-                attrTypeTmp = "StatusAttribute ";
-            } else if ("Rate".equals(entry.getKey().getType())){
-                attrTypeTmp = "RateAttribute ";
-            } else {
-                attrTypeTmp = "StringAttribute ";
-            }
+            final String attrType = getAttributeType(entry.getKey());
+            final String instanceVariable = getInstanceVariable(entry.getKey());
+            _writer.line("@Attribute(name = \"", entry.getKey().getName(), "\", method = MethodType.GETTER",
+                            profiles, ")")
+                .line("public ", attrType, "get", instanceVariable, "()").beginBlock()
+                .line("return this.", instanceVariable.toLowerCase(), ";")
+                .endBlock().line()
+                .line("@Attribute(name = \"", entry.getKey().getName(), "\", method = MethodType.SETTER",
+                            profiles, ")")
+                .line("public void set", instanceVariable, "(final ", attrType, "_",
+                                instanceVariable.toLowerCase(), ")").beginBlock()
+                .line("this.", instanceVariable.toLowerCase(), " = _", instanceVariable.toLowerCase(), ";")
+                .endBlock().line();
+        }
+        if (jmsStax) {
+            writeStax(_writer, _typeCI, className, extendStr, attributes.keySet());
+        }
+        _writer.endBlock();
+    }
+
+    /**
+     * Write the nested class Stax that reads and writes the object with the
+     * element names of the JAXB mapping. As a nested class it has access to
+     * the private fields. The fields of the parent are handled by the Stax
+     * class of the parent, the ones of the base classes by the StaxCodec.
+     *
+     * @param _writer the writer
+     * @param _typeCI the type
+     * @param _className name of the class
+     * @param _extendStr class that is extended
+     * @param _attributes the attributes of the class
+     * @throws IOException on error
+     */
+    private void writeStax(final JavaSourceWriter _writer,
+                           final TypeCI _typeCI,
+                           final String _className,
+                           final String _extendStr,
+                           final Collection<IAttributeCI> _attributes)
+        throws IOException
+    {
+        final boolean base = "AbstractObject".equals(_extendStr)
+                        || "AbstractClassificationObject".equals(_extendStr);
+        final String params = "(final XMLStreamWriter _writer, final " + _className + " _object, "
+                        + "final StaxCodec _codec)";
+        _writer.line("public static final class Stax").beginBlock()
+            .line("private Stax()").beginBlock().endBlock().line()
+            .line("public static void write", params)
+            .indent().line("throws XMLStreamException").outdent()
+            .beginBlock()
+            .line("_writer.writeStartElement(\"", _typeCI.getName(), "\");")
+            .line("writeFields(_writer, _object, _codec);")
+            .line("_writer.writeEndElement();")
+            .endBlock().line()
+            .line("public static void writeFields", params)
+            .indent().line("throws XMLStreamException").outdent()
+            .beginBlock()
+            .line(base ? "_codec.writeBase(_writer, _object);"
+                            : _extendStr + ".Stax.writeFields(_writer, _object, _codec);");
+        for (final IAttributeCI attribute : _attributes) {
+            _writer.line("_codec.write(_writer, \"", attribute.getName().toLowerCase(), "\", _object.",
+                            getInstanceVariable(attribute).toLowerCase(), ");");
+        }
+        _writer.endBlock().line();
+        if (!_typeCI.isAbstract()) {
+            _writer.line("public static ", _className, " read(final XMLStreamReader _reader, final StaxCodec _codec)")
+                .indent().line("throws XMLStreamException").outdent()
+                .beginBlock()
+                .line("final ", _className, " ret = new ", _className, "();")
+                .line("while (_reader.nextTag() == XMLStreamConstants.START_ELEMENT)").beginBlock()
+                .line("if (!readField(_reader, ret, _codec))").beginBlock()
+                .line("_codec.skip(_reader);")
+                .endBlock()
+                .endBlock()
+                .line("return ret;")
+                .endBlock().line();
+        }
+        _writer.line("public static boolean readField(final XMLStreamReader _reader, final ", _className,
+                        " _object, final StaxCodec _codec)")
+            .indent().line("throws XMLStreamException").outdent()
+            .beginBlock()
+            .line("final boolean ret;")
+            .line("switch (_reader.getLocalName())").beginBlock();
+        for (final IAttributeCI attribute : _attributes) {
+            _writer.line("case \"", attribute.getName().toLowerCase(), "\":").indent()
+                .line("_object.", getInstanceVariable(attribute).toLowerCase(), " = _codec.read(_reader, ",
+                                getAttributeType(attribute).trim(), ".class);")
+                .line("ret = true;")
+                .line("break;").outdent();
+        }
+        _writer.line("default:").indent()
+            .line(base ? "ret = _codec.readBase(_reader, _object);"
+                            : "ret = " + _extendStr + ".Stax.readField(_reader, _object, _codec);")
+            .line("break;").outdent()
+            .endBlock()
+            .line("return ret;")
+            .endBlock()
+            .endBlock();
+    }
 
-            String instanceVariable = entry.getKey().getName();
-            if ("Class".equalsIgnoreCase(instanceVariable)) {
-                instanceVariable = "Clazz";
-            } else if ("Abstract".equalsIgnoreCase(instanceVariable)) {
-                instanceVariable = "AbstractV";
-            } else if ("Default".equalsIgnoreCase(instanceVariable)) {
-                instanceVariable = "DefaultV";
+    /**
+     * Write the interface the generated Stax classes read and write the
+     * attributes and the fields of the base classes with.
+     *
+     * @param _timer the timer of the generate phase
+     * @throws IOException on error
+     */
+    private void writeStaxCodec(final Timer _timer)
+        throws IOException
+    {
+        final File codecFile = new File(getOutputDirectory(), jmsPackage.replace('.', '/') + "/StaxCodec.java");
+        if (jmsStax) {
+            try (JavaSourceWriter writer = new JavaSourceWriter(codecFile, null)) {
+                writer.packageDeclaration("org.efaps.esjp.jms")
+                    .line()
+                    .imports("javax.xml.stream.XMLStreamConstants",
+                             "javax.xml.stream.XMLStreamException",
+                             "javax.xml.stream.XMLStreamReader",
+                             "javax.xml.stream.XMLStreamWriter")
+                    .line()
+                    .line("/**")
+                    .line(" * Reads and writes the attributes for the Stax classes nested in the JMS")
+                    .line(" * classes. The implementation must produce the same XML as the JAXB")
+                    .line(" * mapping of the attribute classes.")
+                    .line(" */")
+                    .line("public interface StaxCodec").beginBlock()
+                    .line("/**")
+                    .line(" * Write the elements of AbstractObject or AbstractClassificationObject.")
+                    .line(" */")
+                    .line("void writeBase(XMLStreamWriter _writer, Object _object)")
+                    .indent().line("throws XMLStreamException;").outdent()
+                    .line()
+                    .line("/**")
+                    .line(" * Read an element of AbstractObject or AbstractClassificationObject, the")
+                    .line(" * reader is positioned on its start element and must be left on its end")
+                    .line(" * element.")
+                    .line(" *")
+                    .line(" * @return false if the element is unknown")
+                    .line(" */")
+                    .line("boolean readBase(XMLStreamReader _reader, Object _object)")
+                    .indent().line("throws XMLStreamException;").outdent()
+                    .line()
+                    .line("/**")
+                    .line(" * Write an attribute as element with the given name, nothing if the")
+                    .line(" * attribute is null.")
+                    .line(" */")
+                    .line("void write(XMLStreamWriter _writer, String _element, Object _attribute)")
+                    .indent().line("throws XMLStreamException;").outdent()
+                    .line()
+                    .line("/**")
+                    .line(" * Read an attribute, the reader is positioned on the start element and")
+                    .line(" * must be left on its end element.")
+                    .line(" */")
+                    .line("<T> T read(XMLStreamReader _reader, Class<T> _attributeClass)")
+                    .indent().line("throws XMLStreamException;").outdent()
+                    .line()
+                    .line("/**")
+                    .line(" * Skip an unknown element, the reader is positioned on its start element.")
+                    .line(" */")
+                    .line("default void skip(final XMLStreamReader _reader)")
+                    .indent().line("throws XMLStreamException").outdent()
+                    .beginBlock()
+                    .line("int depth = 1;")
+                    .line("while (depth > 0)").beginBlock()
+                    .line("final int event = _reader.next();")
+                    .line("if (event == XMLStreamConstants.START_ELEMENT)").beginBlock()
+                    .line("depth++;")
+                    .endBlock()
+                    .line("else if (event == XMLStreamConstants.END_ELEMENT)").beginBlock()
+                    .line("depth--;")
+                    .endBlock()
+                    .endBlock()
+                    .endBlock()
+                    .endBlock();
+                if (writer.commit()) {
+                    _timer.addFile(codecFile.length());
+                }
             }
-            ret
-                 .append(attrTypeTmp).append(instanceVariable.toLowerCase()).append(";\n\n");
-            getter
-                .append(attrTypeTmp).append("get").append(instanceVariable).append("()\n")
-                .append("    {\n")
-                .append("        return this.").append(instanceVariable.toLowerCase()).append(";\n")
-                .append("    }\n\n");
-            setter
-                .append("set").append(instanceVariable).append("(final ").append(attrTypeTmp).append("_")
-                    .append(instanceVariable.toLowerCase()).append(")\n")
-                .append("    {\n")
-                .append("        this.").append(instanceVariable.toLowerCase()).append(" = _")
-                    .append(instanceVariable.toLowerCase()).append(";\n")
-                .append("    }\n\n");
-
-            getter.append(setter);
+        } else {
+            FileUtils.deleteQuietly(codecFile);
         }
     }
-    ret.append(getter).append("}\n");
 
-    return ret.toString();
+    /**
+     * Gets the class of the JMS attribute followed by a blank.
+     *
+     * @param _attribute the attribute
+     * @return the class
+     */
+    private String getAttributeType(final IAttributeCI _attribute)
+    {
+        final String ret;
+        if ("Long".equals(_attribute.getType())) {
+            ret = "LongAttribute ";
+        } else if ("Integer".equals(_attribute.getType())) {
+            ret = "IntegerAttribute ";
+        } else if ("Link".equals(_attribute.getType()) || "LinkWithRanges".equals(_attribute.getType())) {
+            ret = "LinkAttribute ";
+        } else if ("Decimal".equals(_attribute.getType())) {
+            ret = "DecimalAttribute ";
+        } else if ("Date".equals(_attribute.getType())) {
+            ret = "DateAttribute ";
+        } else if ("DateTime".equals(_attribute.getType())) {
+            ret = "DateTimeAttribute ";
+        } else if ("Status".equals(_attribute.getType())) {
+            ret = "StatusAttribute ";
+        } else if ("Rate".equals(_attribute.getType())) {
+            ret = "RateAttribute ";
+        } else {
+            ret = "StringAttribute ";
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the name of the instance variable for an attribute, names that
+     * are keywords in java are replaced.
+     *
+     * @param _attribute the attribute
+     * @return the name of the instance variable
+     */
+    private String getInstanceVariable(final IAttributeCI _attribute)
+    {
+        String ret = _attribute.getName();
+        if ("Class".equalsIgnoreCase(ret)) {
+            ret = "Clazz";
+        } else if ("Abstract".equalsIgnoreCase(ret)) {
+            ret = "AbstractV";
+        } else if ("Default".equalsIgnoreCase(ret)) {
+            ret = "DefaultV";
+        }
+        return ret;
     }
 
+    /**
+     * Immutable index of the types of the dependencies and the application,
+     * built before any class is generated so that the parent of a type is
+     * known independent of the order of the files.
+     */
+    private static final class TypeIndex
+    {
+
+        /** The types by name, in the order of the files. */
+        private final Map<String, TypeCI> types;
+
+        /** Mapping between the types and the package of their class. */
+        private final Map<String, String> type2package;
+
+        /** Mapping between the types and the digest of their file. */
+        private final Map<String, String> type2digest;
+
+        /**
+         * Instantiates a new index.
+         *
+         * @param _types the types by name
+         * @param _type2package mapping between the types and the packages
+         * @param _type2digest mapping between the types and the digests
+         */
+        TypeIndex(final Map<String, TypeCI> _types,
+                  final Map<String, String> _type2package,
+                  final Map<String, String> _type2digest)
+        {
+            types = Collections.unmodifiableMap(new LinkedHashMap<>(_types));
+            type2package = Collections.unmodifiableMap(new HashMap<>(_type2package));
+            type2digest = Collections.unmodifiableMap(new HashMap<>(_type2digest));
+        }
+
+        /**
+         * Gets the types.
+         *
+         * @return the types
+         */
+        Collection<TypeCI> getTypes()
+        {
+            return types.values();
+        }
+
+        /**
+         * Gets the package of the class for a type.
+         *
+         * @param _typeName name of the type
+         * @return the package, null if the type is unknown
+         */
+        String getPackageName(final String _typeName)
+        {
+            return type2package.get(_typeName);
+        }
+
+        /**
+         * Gets the digest of the file of a type.
+         *
+         * @param _typeName name of the type
+         * @return the digest, null if the type is unknown
+         */
+        String getDigest(final String _typeName)
+        {
+            return type2digest.get(_typeName);
+        }
     }
+}
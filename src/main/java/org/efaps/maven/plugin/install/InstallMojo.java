@@ -21,6 +21,7 @@ import java.util.Set;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.update.Profile;
 import org.efaps.update.version.Application;
 
@@ -40,7 +41,7 @@ public final class InstallMojo
      *                                not be executed
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException
     {
         init(true);
@@ -55,7 +56,9 @@ public final class InstallMojo
                     profiles.add(Profile.getDefaultProfile());
                 }
                 // install application
-                appl.install(getUserName(), getPassWord(), profiles);
+                try (Timer timer = startPhase("install")) {
+                    appl.install(getUserName(), getPassWord(), profiles);
+                }
             }
         } catch (final Exception e) {
             throw new MojoExecutionException("Could not execute Installation script", e);
@@ -0,0 +1,292 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.install;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Writes a generated Java source file through a buffered UTF-8 writer
+ * instead of building it in memory. Lines are indented with four spaces per
+ * level of {@link #indent()} or {@link #beginBlock()}.<br/>
+ * The source is written to a temporary file in the target directory. On
+ * {@link #commit()} it replaces the target file, but only if the content
+ * changed, so that unchanged sources keep their timestamp. Closing without
+ * commit discards the temporary file.
+ *
+ * <pre>
+ * try (JavaSourceWriter writer = new JavaSourceWriter(file, null)) {
+ *     writer.packageDeclaration("org.efaps.esjp.ci")
+ *         .line("public final class CIDemo").beginBlock()
+ *         .line("public static final String NAME = \"Demo\";")
+ *         .endBlock();
+ *     writer.commit();
+ * }
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public class JavaSourceWriter
+    implements Closeable
+{
+
+    /** Indentation of one level. */
+    private static final String INDENT = "    ";
+
+    /** The target file. */
+    private final File file;
+
+    /** Temporary file written to. */
+    private final File tmpFile;
+
+    /** Lines ignored when comparing with the existing file, may be null. */
+    private final Pattern ignoredLines;
+
+    /** The writer. */
+    private final Writer writer;
+
+    /** Current level of indentation. */
+    private int level;
+
+    /** Is the writer at the start of a line. */
+    private boolean lineStart = true;
+
+    /** Was the target file written. */
+    private boolean changed;
+
+    /** Was the source committed. */
+    private boolean committed;
+
+    /**
+     * Instantiates a new writer.
+     *
+     * @param _file the target file
+     * @param _ignoredLines lines ignored when comparing with the existing
+     *            file, e.g. a date, may be null
+     * @throws IOException on error
+     */
+    public JavaSourceWriter(final File _file,
+                            final Pattern _ignoredLines)
+        throws IOException
+    {
+        file = _file;
+        ignoredLines = _ignoredLines;
+        file.getParentFile().mkdirs();
+        tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Append text. Every line of the text is indented to the current level.
+     *
+     * @param _texts the texts
+     * @return this writer
+     * @throws IOException on error
+     */
+    public JavaSourceWriter append(final CharSequence... _texts)
+        throws IOException
+    {
+        for (final CharSequence text : _texts) {
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                if (c == '\n') {
+                    lineStart = true;
+                } else if (lineStart) {
+                    for (int j = 0; j < level; j++) {
+                        writer.write(INDENT);
+                    }
+                    lineStart = false;
+                }
+                writer.write(c);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Append text and end the line.
+     *
+     * @param _texts the texts
+     * @return this writer
+     * @throws IOException on error
+     */
+    public JavaSourceWriter line(final CharSequence... _texts)
+        throws IOException
+    {
+        return append(_texts).append("\n");
+    }
+
+    /**
+     * Write the package declaration.
+     *
+     * @param _packageName name of the package
+     * @return this writer
+     * @throws IOException on error
+     */
+    public JavaSourceWriter packageDeclaration(final String _packageName)
+        throws IOException
+    {
+        return line("package ", _packageName, ";");
+    }
+
+    /**
+     * Write import declarations.
+     *
+     * @param _imports the imported classes or packages with ".*"
+     * @return this writer
+     * @throws IOException on error
+     */
+    public JavaSourceWriter imports(final String... _imports)
+        throws IOException
+    {
+        for (final String imp : _imports) {
+            line("import ", imp, ";");
+        }
+        return this;
+    }
+
+    /**
+     * Open a block with "{" and indent the following lines.
+     *
+     * @return this writer
+     * @throws IOException on error
+     */
+    public JavaSourceWriter beginBlock()
+        throws IOException
+    {
+        return line("{").indent();
+    }
+
+    /**
+     * Close a block opened with {@link #beginBlock()}.
+     *
+     * @return this writer
+     * @throws IOException on error
+     */
+    public JavaSourceWriter endBlock()
+        throws IOException
+    {
+        return outdent().line("}");
+    }
+
+    /**
+     * Increase the level of indentation.
+     *
+     * @return this writer
+     */
+    public JavaSourceWriter indent()
+    {
+        level++;
+        return this;
+    }
+
+    /**
+     * Decrease the level of indentation.
+     *
+     * @return this writer
+     */
+    public JavaSourceWriter outdent()
+    {
+        level--;
+        return this;
+    }
+
+    /**
+     * Finish the source. The target file is replaced if its content changed.
+     *
+     * @return true if the target file was written
+     * @throws IOException on error
+     */
+    public boolean commit()
+        throws IOException
+    {
+        writer.close();
+        committed = true;
+        if (file.exists() && isEqual()) {
+            Files.delete(tmpFile.toPath());
+        } else {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Was the target file written.
+     *
+     * @return true if written
+     */
+    public boolean isChanged()
+    {
+        return changed;
+    }
+
+    /**
+     * Gets the target file.
+     *
+     * @return the target file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Compare the temporary and the target file line by line.
+     *
+     * @return true if equal
+     * @throws IOException on error
+     */
+    private boolean isEqual()
+        throws IOException
+    {
+        boolean ret = true;
+        try (BufferedReader current = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+             BufferedReader generated = Files.newBufferedReader(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+            String currentLine = current.readLine();
+            String generatedLine = generated.readLine();
+            while (ret && (currentLine != null || generatedLine != null)) {
+                if (currentLine == null || generatedLine == null) {
+                    ret = false;
+                } else if (!currentLine.equals(generatedLine) && (ignoredLines == null
+                                || !ignoredLines.matcher(currentLine).matches()
+                                || !ignoredLines.matcher(generatedLine).matches())) {
+                    ret = false;
+                }
+                currentLine = current.readLine();
+                generatedLine = generated.readLine();
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if (!committed) {
+            writer.close();
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.update.Profile;
 import org.efaps.update.version.Application;
 
@@ -57,7 +58,7 @@ public final class SourceInstallMojo
      * @throws MojoExecutionException if installation failed
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException
     {
         init(true);
@@ -81,7 +82,9 @@ public final class SourceInstallMojo
 
             // install applications
             if (appl != null) {
-                appl.install(getUserName(), getPassWord(), profiles, getCompile());
+                try (Timer timer = startPhase("install")) {
+                    appl.install(getUserName(), getPassWord(), profiles, getCompile());
+                }
             }
         } catch (final Exception e) {
             throw new MojoExecutionException("Could not execute SourceInstall script", e);
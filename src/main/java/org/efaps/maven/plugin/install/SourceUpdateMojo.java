@@ -22,6 +22,7 @@ import java.util.Set;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.update.Profile;
 import org.efaps.update.version.Application;
 
@@ -50,7 +51,7 @@ public final class SourceUpdateMojo
      * @throws MojoExecutionException if installation failed
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException
     {
         init(true);
@@ -73,7 +74,9 @@ public final class SourceUpdateMojo
             }
             // install applications
             if (appl != null) {
-                appl.updateLastVersion(getUserName(), getPassWord(), profiles);
+                try (Timer timer = startPhase("install")) {
+                    appl.updateLastVersion(getUserName(), getPassWord(), profiles);
+                }
             }
         } catch (final Exception e) {
             throw new MojoExecutionException("Could not execute SourceInstall script", e);
@@ -21,6 +21,7 @@ import java.util.Set;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.efaps.maven.plugin.ExecutionMetrics.Timer;
 import org.efaps.update.Profile;
 import org.efaps.update.version.Application;
 
@@ -40,7 +41,7 @@ public final class UpdateMojo
      * @throws MojoExecutionException if update failed
      */
     @Override
-    public void execute()
+    protected void doExecute()
         throws MojoExecutionException
     {
         init(true);
@@ -55,7 +56,9 @@ public final class UpdateMojo
                     profiles.add(Profile.getDefaultProfile());
                 }
                 // update applications
-                appl.updateLastVersion(getUserName(), getPassWord(), profiles);
+                try (Timer timer = startPhase("install")) {
+                    appl.updateLastVersion(getUserName(), getPassWord(), profiles);
+                }
             }
         } catch (final Exception e)  {
             throw new MojoExecutionException("Could not execute Installation script", e);
@@ -0,0 +1,969 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.install.digester;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.digester3.annotations.rules.ObjectCreate;
+
+/**
+ * Streaming alternative to the digester rules of the CI classes. The file is
+ * read with StAX and the same CI objects the digester would create are
+ * filled. Depending on the {@link Extent} requested by the caller the reading
+ * stops as soon as the needed values are known, so that large forms and
+ * tables are not read completely if only the uuid is needed.<br/>
+ * An instance is not thread safe.
+ *
+ * <pre>
+ * final IBaseCI item = new CIExtractor(TypeCI.class, StatusGroupCI.class).extract(stream, Extent.HEADER);
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public class CIExtractor
+{
+
+    /**
+     * Values that must be read before the extractor stops.
+     */
+    public enum Extent
+    {
+        /**
+         * The uuid and the name of the first definition. The files of
+         * {@link IRelatedFiles} are always read completely.
+         */
+        HEADER,
+        /** The uuid and the complete first definition. */
+        FIRST_DEFINITION,
+        /** The complete file. */
+        COMPLETE;
+    }
+
+    /** Mapping of CI class to the handler filling it. */
+    private static final Map<Class<?>, Supplier<Handler<?>>> HANDLERS = new HashMap<>();
+    static {
+        HANDLERS.put(TypeCI.class, TypeHandler::new);
+        HANDLERS.put(StatusGroupCI.class, StatusGroupHandler::new);
+        HANDLERS.put(FormCI.class, FormHandler::new);
+        HANDLERS.put(TableCI.class, TableHandler::new);
+        HANDLERS.put(MsgPhraseCI.class, MsgPhraseHandler::new);
+        HANDLERS.put(NumGenCI.class, NumGenHandler::new);
+        HANDLERS.put(DBPropertiesCI.class, () -> new RelatedFilesHandler<>(new DBPropertiesCI(),
+                        DBPropertiesCI::setUuid, DBPropertiesCI::addFile, "resource/file"));
+        HANDLERS.put(ImageCI.class, () -> new RelatedFilesHandler<>(new ImageCI(),
+                        ImageCI::setUuid, ImageCI::addFile, "definition/file"));
+        HANDLERS.put(JasperImageCI.class, () -> new RelatedFilesHandler<>(new JasperImageCI(),
+                        JasperImageCI::setUuid, JasperImageCI::addFile, "definition/file"));
+        HANDLERS.put(AccessSetCI.class, () -> new UuidHandler<>(new AccessSetCI(), AccessSetCI::setUuid));
+        HANDLERS.put(CommandCI.class, () -> new UuidHandler<>(new CommandCI(), CommandCI::setUuid));
+        HANDLERS.put(MenuCI.class, () -> new UuidHandler<>(new MenuCI(), MenuCI::setUuid));
+        HANDLERS.put(ModuleCI.class, () -> new UuidHandler<>(new ModuleCI(), ModuleCI::setUuid));
+        HANDLERS.put(RoleCI.class, () -> new UuidHandler<>(new RoleCI(), RoleCI::setUuid));
+        HANDLERS.put(SearchCI.class, () -> new UuidHandler<>(new SearchCI(), SearchCI::setUuid));
+        HANDLERS.put(SQLTableCI.class, () -> new UuidHandler<>(new SQLTableCI(), SQLTableCI::setUuid));
+    }
+
+    /** Mapping of root element to the handler for the bound classes. */
+    private final Map<String, Supplier<Handler<?>>> root2Handler = new HashMap<>();
+
+    /** The factory. */
+    private final XMLInputFactory factory;
+
+    /**
+     * Instantiates a new extractor for the given CI classes. Like for the
+     * digester only files with the root element of one of the classes are
+     * evaluated.
+     *
+     * @param ciClasses the CI classes
+     */
+    public CIExtractor(final Class<?>... ciClasses)
+    {
+        for (final Class<?> ciClass : ciClasses) {
+            final ObjectCreate objectCreate = ciClass.getAnnotation(ObjectCreate.class);
+            final Supplier<Handler<?>> handler = HANDLERS.get(ciClass);
+            if (objectCreate == null || handler == null) {
+                throw new IllegalArgumentException("Class not supported: " + ciClass);
+            }
+            root2Handler.put(objectCreate.pattern(), handler);
+        }
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Gets all CI classes an extractor can be instantiated for.
+     *
+     * @return the CI classes
+     */
+    public static Class<?>[] getSupportedClasses()
+    {
+        return HANDLERS.keySet().toArray(new Class<?>[HANDLERS.size()]);
+    }
+
+    /**
+     * Is one of the CI classes bound to the root element.
+     *
+     * @param root the name of the root element, null if unknown
+     * @return true if the root element is unknown or bound
+     * @see RootElement#sniff(InputStream)
+     */
+    public boolean isBound(final String root)
+    {
+        return root == null || root2Handler.containsKey(root);
+    }
+
+    /**
+     * Read the CI object from a stream. The stream is not closed.
+     *
+     * @param <T> the type of the CI object
+     * @param stream the stream
+     * @param extent the values that must be read
+     * @return the CI object, null if the root element is not bound
+     * @throws XMLStreamException on error
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends IBaseCI> T extract(final InputStream stream,
+                                         final Extent extent)
+        throws XMLStreamException
+    {
+        Handler<?> handler = null;
+        final XMLStreamReader reader = factory.createXMLStreamReader(stream);
+        try {
+            final Deque<String> paths = new ArrayDeque<>();
+            final StringBuilder text = new StringBuilder();
+            boolean done = false;
+            while (!done && reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (handler == null) {
+                            final Supplier<Handler<?>> supplier = root2Handler.get(reader.getLocalName());
+                            if (supplier == null) {
+                                done = true;
+                            } else {
+                                handler = supplier.get();
+                                paths.push("");
+                            }
+                        } else {
+                            final String parent = paths.peek();
+                            final String path = parent.isEmpty() ? reader.getLocalName()
+                                            : parent + "/" + reader.getLocalName();
+                            paths.push(path);
+                            handler.start(path, reader);
+                        }
+                        text.setLength(0);
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        handler.end(paths.pop(), text);
+                        text.setLength(0);
+                        done = handler.isDone(extent);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return handler == null ? null : (T) handler.getCI();
+    }
+
+    /**
+     * Convert an attribute value to a boolean the way the digester does.
+     *
+     * @param _value the value
+     * @return the boolean
+     * @throws XMLStreamException if the value is not a boolean
+     */
+    protected static boolean toBoolean(final String _value)
+        throws XMLStreamException
+    {
+        final boolean ret;
+        switch (_value.trim().toLowerCase()) {
+            case "true":
+            case "yes":
+            case "y":
+            case "on":
+            case "1":
+                ret = true;
+                break;
+            case "false":
+            case "no":
+            case "n":
+            case "off":
+            case "0":
+                ret = false;
+                break;
+            default:
+                throw new XMLStreamException("Can't convert value '" + _value + "' to a Boolean");
+        }
+        return ret;
+    }
+
+    /**
+     * Fills one CI object. The paths are relative to the root element.
+     *
+     * @param <T> the type of the CI object
+     */
+    private abstract static class Handler<T extends IBaseCI>
+    {
+
+        /** The CI object. */
+        private final T ci;
+
+        /** Was the uuid read. */
+        private boolean uuid;
+
+        /**
+         * Instantiates a new handler.
+         *
+         * @param _ci the CI object to fill
+         */
+        Handler(final T _ci)
+        {
+            ci = _ci;
+        }
+
+        /**
+         * Start of an element.
+         *
+         * @param _path the path
+         * @param _reader the reader positioned on the element
+         * @throws XMLStreamException on error
+         */
+        void start(final String _path,
+                   final XMLStreamReader _reader)
+            throws XMLStreamException
+        {
+        }
+
+        /**
+         * End of an element.
+         *
+         * @param _path the path
+         * @param _text the text of the element
+         */
+        void end(final String _path,
+                 final CharSequence _text)
+        {
+            if ("uuid".equals(_path)) {
+                setUuid(trim(_text));
+                uuid = true;
+            }
+        }
+
+        /**
+         * Are all values read needed for the extent.
+         *
+         * @param _extent the extent
+         * @return true if the reading can stop
+         */
+        abstract boolean isDone(Extent _extent);
+
+        /**
+         * Sets the uuid.
+         *
+         * @param _uuid the uuid
+         */
+        abstract void setUuid(String _uuid);
+
+        /**
+         * Was the uuid read.
+         *
+         * @return true if read
+         */
+        boolean isUuid()
+        {
+            return uuid;
+        }
+
+        /**
+         * Gets the CI object.
+         *
+         * @return the CI object
+         */
+        T getCI()
+        {
+            return ci;
+        }
+
+        /**
+         * Trim the text.
+         *
+         * @param _text the text
+         * @return the trimmed text
+         */
+        static String trim(final CharSequence _text)
+        {
+            return _text.toString().trim();
+        }
+    }
+
+    /**
+     * Handler for CI objects with only a uuid.
+     *
+     * @param <T> the type of the CI object
+     */
+    private static class UuidHandler<T extends IBaseCI>
+        extends Handler<T>
+    {
+
+        /** Setter for the uuid. */
+        private final BiConsumer<T, String> uuidSetter;
+
+        /**
+         * Instantiates a new handler.
+         *
+         * @param _ci the CI object to fill
+         * @param _uuidSetter setter for the uuid
+         */
+        UuidHandler(final T _ci,
+                    final BiConsumer<T, String> _uuidSetter)
+        {
+            super(_ci);
+            uuidSetter = _uuidSetter;
+        }
+
+        @Override
+        void setUuid(final String _uuid)
+        {
+            uuidSetter.accept(getCI(), _uuid);
+        }
+
+        @Override
+        boolean isDone(final Extent _extent)
+        {
+            return !Extent.COMPLETE.equals(_extent) && isUuid();
+        }
+    }
+
+    /**
+     * Handler for CI objects with related files, always read completely.
+     *
+     * @param <T> the type of the CI object
+     */
+    private static class RelatedFilesHandler<T extends IRelatedFiles>
+        extends UuidHandler<T>
+    {
+
+        /** Adds a file. */
+        private final BiConsumer<T, String> fileAdder;
+
+        /** Path of the file element. */
+        private final String filePath;
+
+        /**
+         * Instantiates a new handler.
+         *
+         * @param _ci the CI object to fill
+         * @param _uuidSetter setter for the uuid
+         * @param _fileAdder adds a file
+         * @param _filePath path of the file element
+         */
+        RelatedFilesHandler(final T _ci,
+                            final BiConsumer<T, String> _uuidSetter,
+                            final BiConsumer<T, String> _fileAdder,
+                            final String _filePath)
+        {
+            super(_ci, _uuidSetter);
+            fileAdder = _fileAdder;
+            filePath = _filePath;
+        }
+
+        @Override
+        void end(final String _path,
+                 final CharSequence _text)
+        {
+            super.end(_path, _text);
+            if (filePath.equals(_path)) {
+                fileAdder.accept(getCI(), trim(_text));
+            }
+        }
+
+        @Override
+        boolean isDone(final Extent _extent)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Handler for CI objects with definitions.
+     *
+     * @param <T> the type of the CI object
+     * @param <D> the type of the definition
+     */
+    private abstract static class DefinitionHandler<T extends IBaseCI, D>
+        extends Handler<T>
+    {
+
+        /** The current definition. */
+        private D definition;
+
+        /** Was the name of the first definition read. */
+        private boolean name;
+
+        /** Was the first definition read. */
+        private boolean firstDefinition;
+
+        /** Name of the last profile of the current profiles element. */
+        private String profile;
+
+        /**
+         * Instantiates a new handler.
+         *
+         * @param _ci the CI object to fill
+         */
+        DefinitionHandler(final T _ci)
+        {
+            super(_ci);
+        }
+
+        @Override
+        void start(final String _path,
+                   final XMLStreamReader _reader)
+            throws XMLStreamException
+        {
+            if ("definition".equals(_path)) {
+                definition = addDefinition();
+            } else if (definition != null && _path.startsWith("definition/")) {
+                final String path = _path.substring(11);
+                if ("profiles".equals(path)) {
+                    profile = null;
+                } else if ("profiles/profile".equals(path)) {
+                    // like the digester only the last profile is added
+                    profile = _reader.getAttributeValue(null, "name");
+                } else {
+                    startDefinition(definition, path, _reader);
+                }
+            }
+        }
+
+        @Override
+        void end(final String _path,
+                 final CharSequence _text)
+        {
+            super.end(_path, _text);
+            if ("definition".equals(_path)) {
+                firstDefinition = true;
+            } else if (definition != null && _path.startsWith("definition/")) {
+                final String path = _path.substring(11);
+                if ("name".equals(path)) {
+                    name = true;
+                }
+                if ("profiles".equals(path)) {
+                    if (profile != null) {
+                        addProfile(definition, profile);
+                    }
+                } else {
+                    endDefinition(definition, path, _text);
+                }
+            }
+        }
+
+        @Override
+        boolean isDone(final Extent _extent)
+        {
+            final boolean ret;
+            switch (_extent) {
+                case HEADER:
+                    ret = isUuid() && name;
+                    break;
+                case FIRST_DEFINITION:
+                    ret = isUuid() && firstDefinition;
+                    break;
+                default:
+                    ret = false;
+                    break;
+            }
+            return ret;
+        }
+
+        /**
+         * Create a new definition and add it to the CI object.
+         *
+         * @return the definition
+         */
+        abstract D addDefinition();
+
+        /**
+         * Start of an element inside a definition.
+         *
+         * @param _definition the definition
+         * @param _path the path relative to the definition
+         * @param _reader the reader positioned on the element
+         * @throws XMLStreamException on error
+         */
+        void startDefinition(final D _definition,
+                             final String _path,
+                             final XMLStreamReader _reader)
+            throws XMLStreamException
+        {
+        }
+
+        /**
+         * End of an element inside a definition.
+         *
+         * @param _definition the definition
+         * @param _path the path relative to the definition
+         * @param _text the text of the element
+         */
+        abstract void endDefinition(D _definition,
+                                    String _path,
+                                    CharSequence _text);
+
+        /**
+         * Add a profile to the definition.
+         *
+         * @param _definition the definition
+         * @param _profile the profile
+         */
+        void addProfile(final D _definition,
+                        final String _profile)
+        {
+        }
+    }
+
+    /**
+     * Handler for {@link TypeCI}.
+     */
+    private static class TypeHandler
+        extends DefinitionHandler<TypeCI, TypeCIDefinition>
+    {
+
+        /** The current attribute. */
+        private AttributeCI attribute;
+
+        /** The current attribute set. */
+        private AttributeSetCI attributeSet;
+
+        /**
+         * Instantiates a new handler.
+         */
+        TypeHandler()
+        {
+            super(new TypeCI());
+        }
+
+        @Override
+        void setUuid(final String _uuid)
+        {
+            getCI().setUuid(_uuid);
+        }
+
+        @Override
+        void end(final String _path,
+                 final CharSequence _text)
+        {
+            super.end(_path, _text);
+            if ("file-application".equals(_path)) {
+                getCI().setApplication(trim(_text));
+            }
+        }
+
+        @Override
+        TypeCIDefinition addDefinition()
+        {
+            final TypeCIDefinition ret = new TypeCIDefinition();
+            getCI().addDefinition(ret);
+            return ret;
+        }
+
+        @Override
+        void startDefinition(final TypeCIDefinition _definition,
+                             final String _path,
+                             final XMLStreamReader _reader)
+            throws XMLStreamException
+        {
+            switch (_path) {
+                case "purpose":
+                    final String abstractType = _reader.getAttributeValue(null, "abstract");
+                    if (abstractType != null) {
+                        _definition.setAbstractType(toBoolean(abstractType));
+                    }
+                    final String generalInstance = _reader.getAttributeValue(null, "GeneralInstance");
+                    if (generalInstance != null) {
+                        _definition.setGeneralInstance(toBoolean(generalInstance));
+                    }
+                    break;
+                case "classification":
+                    final String classification = _reader.getAttributeValue(null, "classification");
+                    if (classification != null) {
+                        _definition.setClassification(toBoolean(classification));
+                    }
+                    break;
+                case "attribute":
+                    attribute = new AttributeCI();
+                    break;
+                case "attributeset":
+                    attributeSet = new AttributeSetCI();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        void endDefinition(final TypeCIDefinition _definition,
+                           final String _path,
+                           final CharSequence _text)
+        {
+            switch (_path) {
+                case "version-expression":
+                    _definition.setExpression(trim(_text));
+                    break;
+                case "name":
+                    _definition.setName(trim(_text));
+                    break;
+                case "parent":
+                    _definition.setParent(trim(_text));
+                    break;
+                case "attribute":
+                    _definition.addAttribute(attribute);
+                    attribute = null;
+                    break;
+                case "attribute/name":
+                    attribute.setName(trim(_text));
+                    break;
+                case "attribute/type":
+                    attribute.setType(trim(_text));
+                    break;
+                case "attributeset":
+                    _definition.addAttributeSet(attributeSet);
+                    attributeSet = null;
+                    break;
+                case "attributeset/name":
+                    attributeSet.setName(trim(_text));
+                    break;
+                case "attributeset/type":
+                    attributeSet.setType(trim(_text));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        void addProfile(final TypeCIDefinition _definition,
+                        final String _profile)
+        {
+            _definition.addProfile(_profile);
+        }
+    }
+
+    /**
+     * Handler for {@link StatusGroupCI}.
+     */
+    private static class StatusGroupHandler
+        extends DefinitionHandler<StatusGroupCI, StatusCIDefinition>
+    {
+
+        /**
+         * Instantiates a new handler.
+         */
+        StatusGroupHandler()
+        {
+            super(new StatusGroupCI());
+        }
+
+        @Override
+        void setUuid(final String _uuid)
+        {
+            getCI().setUuid(_uuid);
+        }
+
+        @Override
+        StatusCIDefinition addDefinition()
+        {
+            final StatusCIDefinition ret = new StatusCIDefinition();
+            getCI().addDefinition(ret);
+            return ret;
+        }
+
+        @Override
+        void startDefinition(final StatusCIDefinition _definition,
+                             final String _path,
+                             final XMLStreamReader _reader)
+        {
+            if ("status".equals(_path)) {
+                final String key = _reader.getAttributeValue(null, "key");
+                if (key != null) {
+                    _definition.addStatus(key);
+                }
+            }
+        }
+
+        @Override
+        void endDefinition(final StatusCIDefinition _definition,
+                           final String _path,
+                           final CharSequence _text)
+        {
+            switch (_path) {
+                case "version-expression":
+                    _definition.setExpression(trim(_text));
+                    break;
+                case "name":
+                    _definition.setName(trim(_text));
+                    break;
+                case "parent":
+                    _definition.setParent(trim(_text));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        void addProfile(final StatusCIDefinition _definition,
+                        final String _profile)
+        {
+            _definition.addProfile(_profile);
+        }
+    }
+
+    /**
+     * Handler for {@link FormCI}.
+     */
+    private static class FormHandler
+        extends DefinitionHandler<FormCI, FormCIDefinition>
+    {
+
+        /**
+         * Instantiates a new handler.
+         */
+        FormHandler()
+        {
+            super(new FormCI());
+        }
+
+        @Override
+        void setUuid(final String _uuid)
+        {
+            getCI().setUuid(_uuid);
+        }
+
+        @Override
+        FormCIDefinition addDefinition()
+        {
+            final FormCIDefinition ret = new FormCIDefinition();
+            getCI().addDefinition(ret);
+            return ret;
+        }
+
+        @Override
+        void startDefinition(final FormCIDefinition _definition,
+                             final String _path,
+                             final XMLStreamReader _reader)
+        {
+            if ("field".equals(_path)) {
+                final String field = _reader.getAttributeValue(null, "name");
+                if (field != null) {
+                    _definition.addField(field);
+                }
+            }
+        }
+
+        @Override
+        void endDefinition(final FormCIDefinition _definition,
+                           final String _path,
+                           final CharSequence _text)
+        {
+            switch (_path) {
+                case "version-expression":
+                    _definition.setExpression(trim(_text));
+                    break;
+                case "name":
+                    _definition.setName(trim(_text));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        void addProfile(final FormCIDefinition _definition,
+                        final String _profile)
+        {
+            _definition.addProfile(_profile);
+        }
+    }
+
+    /**
+     * Handler for {@link TableCI}.
+     */
+    private static class TableHandler
+        extends DefinitionHandler<TableCI, TableCIDefinition>
+    {
+
+        /**
+         * Instantiates a new handler.
+         */
+        TableHandler()
+        {
+            super(new TableCI());
+        }
+
+        @Override
+        void setUuid(final String _uuid)
+        {
+            getCI().setUuid(_uuid);
+        }
+
+        @Override
+        TableCIDefinition addDefinition()
+        {
+            final TableCIDefinition ret = new TableCIDefinition();
+            getCI().addDefinition(ret);
+            return ret;
+        }
+
+        @Override
+        void startDefinition(final TableCIDefinition _definition,
+                             final String _path,
+                             final XMLStreamReader _reader)
+        {
+            if ("field".equals(_path)) {
+                final String field = _reader.getAttributeValue(null, "name");
+                if (field != null) {
+                    _definition.addField(field);
+                }
+            }
+        }
+
+        @Override
+        void endDefinition(final TableCIDefinition _definition,
+                           final String _path,
+                           final CharSequence _text)
+        {
+            switch (_path) {
+                case "version-expression":
+                    _definition.setExpression(trim(_text));
+                    break;
+                case "name":
+                    _definition.setName(trim(_text));
+                    break;
+                case "parent":
+                    _definition.setParent(trim(_text));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        void addProfile(final TableCIDefinition _definition,
+                        final String _profile)
+        {
+            _definition.addProfile(_profile);
+        }
+    }
+
+    /**
+     * Handler for {@link MsgPhraseCI}.
+     */
+    private static class MsgPhraseHandler
+        extends DefinitionHandler<MsgPhraseCI, MsgPhraseCIDefinition>
+    {
+
+        /**
+         * Instantiates a new handler.
+         */
+        MsgPhraseHandler()
+        {
+            super(new MsgPhraseCI());
+        }
+
+        @Override
+        void setUuid(final String _uuid)
+        {
+            getCI().setUuid(_uuid);
+        }
+
+        @Override
+        MsgPhraseCIDefinition addDefinition()
+        {
+            final MsgPhraseCIDefinition ret = new MsgPhraseCIDefinition();
+            getCI().addDefinition(ret);
+            return ret;
+        }
+
+        @Override
+        void endDefinition(final MsgPhraseCIDefinition _definition,
+                           final String _path,
+                           final CharSequence _text)
+        {
+            if ("name".equals(_path)) {
+                _definition.setName(trim(_text));
+            }
+        }
+    }
+
+    /**
+     * Handler for {@link NumGenCI}.
+     */
+    private static class NumGenHandler
+        extends DefinitionHandler<NumGenCI, NumGenCIDefinition>
+    {
+
+        /**
+         * Instantiates a new handler.
+         */
+        NumGenHandler()
+        {
+            super(new NumGenCI());
+        }
+
+        @Override
+        void setUuid(final String _uuid)
+        {
+            getCI().setUuid(_uuid);
+        }
+
+        @Override
+        NumGenCIDefinition addDefinition()
+        {
+            final NumGenCIDefinition ret = new NumGenCIDefinition();
+            getCI().addDefinition(ret);
+            return ret;
+        }
+
+        @Override
+        void endDefinition(final NumGenCIDefinition _definition,
+                           final String _path,
+                           final CharSequence _text)
+        {
+            if ("name".equals(_path)) {
+                _definition.setName(trim(_text));
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.install.digester;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.digester3.Digester;
+import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
+import org.apache.commons.digester3.binder.DigesterLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Registry for the digester rule sets used to parse the CI XML files. The
+ * annotations of the CI classes are evaluated only once per set of classes
+ * and JVM. Each thread keeps one {@link Digester}, with its own SAX parser,
+ * per set of classes, that is cleared and reused for the next file.
+ *
+ * <pre>
+ * final Object item = DigesterRegistry.parse(source, TypeCI.class, StatusGroupCI.class);
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public final class DigesterRegistry
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(DigesterRegistry.class);
+
+    /** Mapping of the bound CI classes to the loader. */
+    private static final Map<Set<Class<?>>, DigesterLoader> LOADERS = new ConcurrentHashMap<>();
+
+    /** Digesters of the current thread. */
+    private static final ThreadLocal<Map<DigesterLoader, Digester>> DIGESTERS = ThreadLocal
+                    .withInitial(HashMap::new);
+
+    /**
+     * Utility class.
+     */
+    private DigesterRegistry()
+    {
+    }
+
+    /**
+     * Gets the loader for the given CI classes. The order of the classes
+     * does not matter.
+     *
+     * @param ciClasses the CI classes to bind the rules from
+     * @return the loader
+     */
+    public static DigesterLoader getLoader(final Class<?>... ciClasses)
+    {
+        final Set<Class<?>> key = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(ciClasses)));
+        return LOADERS.computeIfAbsent(key, classes -> {
+            LOG.debug("Creating DigesterLoader for: {}", classes);
+            return DigesterLoader.newLoader(new FromAnnotationsRuleModule()
+            {
+
+                @Override
+                protected void configureRules()
+                {
+                    for (final Class<?> clazz : classes) {
+                        bindRulesFrom(clazz);
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Parse a source with the rules of the given CI classes using the
+     * digester of the current thread.
+     *
+     * @param <T> the type of the parsed object
+     * @param source the source
+     * @param ciClasses the CI classes to bind the rules from
+     * @return the parsed object, null if no rule matched the root element
+     * @throws IOException on error
+     * @throws SAXException on error
+     */
+    public static <T> T parse(final InputSource source,
+                              final Class<?>... ciClasses)
+        throws IOException, SAXException
+    {
+        final DigesterLoader loader = getLoader(ciClasses);
+        final Map<DigesterLoader, Digester> digesters = DIGESTERS.get();
+        Digester digester = digesters.get(loader);
+        if (digester == null) {
+            digester = newDigester(loader);
+        } else {
+            digesters.remove(loader);
+        }
+        // the digester is only given back if the parsing succeeded
+        final T ret = digester.parse(source);
+        digester.clear();
+        digester.resetRoot();
+        digesters.put(loader, digester);
+        return ret;
+    }
+
+    /**
+     * Remove the digesters kept for the current thread.
+     */
+    public static void release()
+    {
+        DIGESTERS.remove();
+    }
+
+    /**
+     * Create a new digester with its own SAX parser.
+     *
+     * @param loader the loader
+     * @return the digester
+     * @throws SAXException on error
+     */
+    private static Digester newDigester(final DigesterLoader loader)
+        throws SAXException
+    {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(loader.isNamespaceAware());
+        factory.setValidating(loader.isValidating());
+        try {
+            // the loader is shared between threads
+            synchronized (loader) {
+                return loader.newDigester(factory.newSAXParser());
+            }
+        } catch (final ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.install.digester;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.lang3.StringUtils;
+import org.efaps.maven.plugin.JarRegistry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Index of the CI items of the XML files in an installation jar, written by
+ * the generate-installation goal. Goals that read the XML files of a
+ * dependency use the index instead of parsing the files again. If a jar
+ * does not contain the index, the files must be parsed as usual.<br/>
+ * Every XML file is contained with its root element, so that files no CI
+ * class is bound to can be skipped too. Files whose root element could not
+ * be sniffed are not contained. A Type is contained with everything
+ * needed to generate its JMS class, all other items only with uuid, kind,
+ * name if their CI class reads one, and related files.
+ *
+ * <pre>
+ * final JarCIIndex index = JarCIIndex.read(jarFile);
+ * if (index != null &amp;&amp; index.contains(file.getUrl())) {
+ *     final IBaseCI item = index.getItem(file.getUrl());
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public final class JarCIIndex
+{
+
+    /** Path of the index in the jar. */
+    public static final String PATH = "META-INF/efaps/ci-index.json";
+
+    /** Version of the format, an index of another version is ignored. */
+    private static final int VERSION = 2;
+
+    /** The items by the path of their file in the jar. */
+    private final Map<String, JsonNode> items = new HashMap<>();
+
+    /**
+     * Add a file.
+     *
+     * @param file path of the file in the jar
+     * @param root name of the root element
+     * @param item the item, null if no CI class is bound to the file
+     */
+    public void add(final String file,
+                    final String root,
+                    final IBaseCI item)
+    {
+        final ObjectNode node = new ObjectMapper().createObjectNode()
+            .put("file", file)
+            .put("root", root);
+        if (item != null) {
+            node.put("uuid", item.getUuid())
+                .put("kind", StringUtils.removeEnd(item.getClass().getSimpleName(), "CI"));
+            final String name = getName(item);
+            if (name != null) {
+                node.put("name", name);
+            }
+            if (item instanceof final IRelatedFiles relatedFiles) {
+                final ArrayNode files = node.putArray("files");
+                relatedFiles.getFiles().forEach(files::add);
+            }
+            if (item instanceof final TypeCI typeCI) {
+                node.put("application", typeCI.getApplication());
+                final ArrayNode definitions = node.putArray("definitions");
+                for (final TypeCIDefinition def : typeCI.getDefinitions()) {
+                    final ObjectNode defNode = definitions.addObject()
+                        .put("name", def.getName())
+                        .put("parent", def.getParent())
+                        .put("abstract", def.isAbstractType())
+                        .put("classification", def.isClassification());
+                    final ArrayNode profiles = defNode.putArray("profiles");
+                    def.getProfiles().forEach(profiles::add);
+                    final ArrayNode attributes = defNode.putArray("attributes");
+                    for (final IAttributeCI attribute : def.getAttributes()) {
+                        attributes.addObject()
+                            .put("name", attribute.getName())
+                            .put("type", attribute.getType())
+                            .put("set", attribute instanceof AttributeSetCI);
+                    }
+                }
+            }
+        }
+        items.put(file, node);
+    }
+
+    /**
+     * Is the file of the URL contained in the index.
+     *
+     * @param url URL of the file in the jar
+     * @return true if contained
+     */
+    public boolean contains(final URL url)
+    {
+        return items.containsKey(getKey(url));
+    }
+
+    /**
+     * Gets the name of the root element of the file.
+     *
+     * @param url URL of the file in the jar
+     * @return the name of the root element, null if unknown
+     */
+    public String getRoot(final URL url)
+    {
+        final JsonNode node = items.get(getKey(url));
+        return node == null ? null : node.path("root").textValue();
+    }
+
+    /**
+     * Gets the indexed content of the file, e.g. to fingerprint it.
+     *
+     * @param url URL of the file in the jar
+     * @return the content, null if not contained
+     */
+    public String getContent(final URL url)
+    {
+        final JsonNode node = items.get(getKey(url));
+        return node == null ? null : node.toString();
+    }
+
+    /**
+     * Gets the item of the file. A Type is returned as {@link TypeCI}, all
+     * other items only provide the uuid and the related files.
+     *
+     * @param url URL of the file in the jar
+     * @return the item, null if not contained or no CI class is bound to
+     *         the file
+     */
+    public IBaseCI getItem(final URL url)
+    {
+        final JsonNode node = items.get(getKey(url));
+        IBaseCI ret = null;
+        if (node != null && node.hasNonNull("uuid")) {
+            if (node.has("definitions")) {
+                final TypeCI typeCI = new TypeCI();
+                typeCI.setUuid(node.path("uuid").textValue());
+                typeCI.setApplication(node.path("application").textValue());
+                for (final JsonNode defNode : node.path("definitions")) {
+                    final TypeCIDefinition def = new TypeCIDefinition();
+                    def.setName(defNode.path("name").textValue());
+                    def.setParent(defNode.path("parent").textValue());
+                    def.setAbstractType(defNode.path("abstract").booleanValue());
+                    def.setClassification(defNode.path("classification").booleanValue());
+                    for (final JsonNode profile : defNode.path("profiles")) {
+                        def.addProfile(profile.textValue());
+                    }
+                    for (final JsonNode attrNode : defNode.path("attributes")) {
+                        if (attrNode.path("set").booleanValue()) {
+                            final AttributeSetCI attributeSet = new AttributeSetCI();
+                            attributeSet.setName(attrNode.path("name").textValue());
+                            attributeSet.setType(attrNode.path("type").textValue());
+                            def.addAttributeSet(attributeSet);
+                        } else {
+                            final AttributeCI attribute = new AttributeCI();
+                            attribute.setName(attrNode.path("name").textValue());
+                            attribute.setType(attrNode.path("type").textValue());
+                            def.addAttribute(attribute);
+                        }
+                    }
+                    typeCI.addDefinition(def);
+                }
+                ret = typeCI;
+            } else {
+                final List<String> files = new ArrayList<>();
+                for (final JsonNode file : node.path("files")) {
+                    files.add(file.textValue());
+                }
+                ret = new IndexedCI(node.path("uuid").textValue(), files);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Write the index.
+     *
+     * @param file the file to write to
+     * @throws IOException on error
+     */
+    public void write(final File file)
+        throws IOException
+    {
+        final ObjectMapper mapper = new ObjectMapper();
+        final ObjectNode root = mapper.createObjectNode().put("version", VERSION);
+        final ArrayNode array = root.putArray("items");
+        items.keySet().stream().sorted().forEach(key -> array.add(items.get(key)));
+        file.getParentFile().mkdirs();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, root);
+    }
+
+    /**
+     * Read the index of a jar. The jar is not closed.
+     *
+     * @param zipFile the opened jar
+     * @return the index, null if the jar does not contain an index of the
+     *         current version
+     * @throws IOException on error
+     */
+    public static JarCIIndex read(final ZipFile zipFile)
+        throws IOException
+    {
+        JarCIIndex ret = null;
+        final ZipEntry entry = zipFile.getEntry(PATH);
+        if (entry != null) {
+            final JsonNode root;
+            try (InputStream stream = zipFile.getInputStream(entry)) {
+                root = new ObjectMapper().readTree(stream);
+            }
+            if (root.path("version").intValue() == VERSION) {
+                ret = new JarCIIndex();
+                for (final JsonNode node : root.path("items")) {
+                    ret.items.put(node.path("file").textValue(), node);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the name of an item. Only some CI classes read a name.
+     *
+     * @param item the item
+     * @return the name, null if the CI class has none
+     */
+    private static String getName(final IBaseCI item)
+    {
+        final String ret;
+        if (item instanceof final TypeCI typeCI) {
+            ret = typeCI.getName();
+        } else if (item instanceof final FormCI formCI) {
+            ret = formCI.getName();
+        } else if (item instanceof final TableCI tableCI) {
+            ret = tableCI.getName();
+        } else if (item instanceof final MsgPhraseCI msgPhraseCI) {
+            ret = msgPhraseCI.getName();
+        } else if (item instanceof final NumGenCI numGenCI) {
+            ret = numGenCI.getName();
+        } else {
+            ret = null;
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the path of the file in the jar from its URL.
+     *
+     * @param url the URL
+     * @return the path, null if the URL does not point into a jar
+     * @see JarRegistry#getEntryName(URL)
+     */
+    private static String getKey(final URL url)
+    {
+        return JarRegistry.getEntryName(url);
+    }
+
+    /**
+     * Item read from the index that is not a Type.
+     */
+    private static final class IndexedCI
+        implements IRelatedFiles
+    {
+
+        /** The uuid. */
+        private final String uuid;
+
+        /** The related files. */
+        private final Collection<String> files;
+
+        /**
+         * Instantiates a new item.
+         *
+         * @param _uuid the uuid
+         * @param _files the related files
+         */
+        IndexedCI(final String _uuid,
+                  final Collection<String> _files)
+        {
+            uuid = _uuid;
+            files = _files;
+        }
+
+        @Override
+        public String getUuid()
+        {
+            return uuid;
+        }
+
+        @Override
+        public Collection<String> getFiles()
+        {
+            return files;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.install.digester;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.digester3.annotations.rules.ObjectCreate;
+
+/**
+ * Reads the name of the root element from the beginning of a XML file
+ * without parsing it, so that files no CI class is bound for can be skipped.
+ * The XML declaration, comments (e.g. the license header), processing
+ * instructions and the document type are skipped. If the name can not be
+ * determined within the first {@link #LIMIT} bytes, or the file is not
+ * encoded compatible to ASCII, the file must be parsed as usual.
+ *
+ * <pre>
+ * final InputStream stream = new BufferedInputStream(connection.getInputStream());
+ * if (RootElement.isBound(RootElement.sniff(stream), TypeCI.class, StatusGroupCI.class)) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author The eFaps Team
+ */
+public final class RootElement
+{
+
+    /** Maximum number of bytes read to find the root element. */
+    public static final int LIMIT = 4096;
+
+    /**
+     * Utility class.
+     */
+    private RootElement()
+    {
+    }
+
+    /**
+     * Read the name of the root element. The stream must support
+     * {@link InputStream#mark(int)} and is reset to its beginning afterwards.
+     *
+     * @param stream the stream
+     * @return the name of the root element, null if unknown
+     * @throws IOException on error
+     */
+    public static String sniff(final InputStream stream)
+        throws IOException
+    {
+        if (!stream.markSupported()) {
+            throw new IllegalArgumentException("Mark not supported by stream");
+        }
+        final byte[] buffer = new byte[LIMIT];
+        int length = 0;
+        stream.mark(LIMIT);
+        try {
+            int read = 0;
+            while (read > -1 && length < LIMIT) {
+                read = stream.read(buffer, length, LIMIT - length);
+                if (read > 0) {
+                    length += read;
+                }
+            }
+        } finally {
+            stream.reset();
+        }
+        return sniff(buffer, length);
+    }
+
+    /**
+     * Read the name of the root element from the given bytes.
+     *
+     * @param buffer the beginning of the file
+     * @param length the number of valid bytes in the buffer
+     * @return the name of the root element, null if unknown
+     */
+    protected static String sniff(final byte[] buffer,
+                                  final int length)
+    {
+        String ret = null;
+        // UTF-8 byte order mark
+        int pos = length > 2 && (buffer[0] & 0xFF) == 0xEF && (buffer[1] & 0xFF) == 0xBB
+                        && (buffer[2] & 0xFF) == 0xBF ? 3 : 0;
+        while (ret == null && pos > -1) {
+            while (pos < length && isWhitespace(buffer[pos])) {
+                pos++;
+            }
+            if (pos >= length || buffer[pos] != '<') {
+                pos = -1;
+            } else if (startsWith(buffer, length, pos, "<?")) {
+                pos = indexOf(buffer, length, pos + 2, "?>");
+            } else if (startsWith(buffer, length, pos, "<!--")) {
+                pos = indexOf(buffer, length, pos + 4, "-->");
+            } else if (startsWith(buffer, length, pos, "<!")) {
+                pos = skipDeclaration(buffer, length, pos + 2);
+            } else {
+                final int start = pos + 1;
+                int end = start;
+                while (end < length && !isWhitespace(buffer[end]) && buffer[end] != '>' && buffer[end] != '/') {
+                    end++;
+                }
+                if (end < length && end > start) {
+                    ret = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+                }
+                pos = -1;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Is one of the CI classes bound to the root element. If the root element
+     * is unknown the classes are treated as bound.
+     *
+     * @param root the name of the root element, may be null
+     * @param ciClasses the CI classes
+     * @return true if the file must be parsed
+     */
+    public static boolean isBound(final String root,
+                                  final Class<?>... ciClasses)
+    {
+        boolean ret = root == null;
+        for (int i = 0; !ret && i < ciClasses.length; i++) {
+            final ObjectCreate objectCreate = ciClasses[i].getAnnotation(ObjectCreate.class);
+            ret = objectCreate != null && root.equals(objectCreate.pattern());
+        }
+        return ret;
+    }
+
+    /**
+     * Skip a declaration like the document type, including an internal
+     * subset.
+     *
+     * @param buffer the buffer
+     * @param length the length
+     * @param from position after "&lt;!"
+     * @return the position after the declaration, -1 if not found
+     */
+    private static int skipDeclaration(final byte[] buffer,
+                                       final int length,
+                                       final int from)
+    {
+        int ret = -1;
+        boolean subset = false;
+        for (int i = from; i < length; i++) {
+            if (buffer[i] == '[') {
+                subset = true;
+            } else if (buffer[i] == ']') {
+                subset = false;
+            } else if (buffer[i] == '>' && !subset) {
+                ret = i + 1;
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Position after the next occurrence of the given ASCII string.
+     *
+     * @param buffer the buffer
+     * @param length the length
+     * @param from position to start the search
+     * @param str the string to search
+     * @return the position after the string, -1 if not found
+     */
+    private static int indexOf(final byte[] buffer,
+                               final int length,
+                               final int from,
+                               final String str)
+    {
+        int ret = -1;
+        for (int i = from; i < length; i++) {
+            if (startsWith(buffer, length, i, str)) {
+                ret = i + str.length();
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Does the buffer contain the given ASCII string at the position.
+     *
+     * @param buffer the buffer
+     * @param length the length
+     * @param pos the position
+     * @param str the string
+     * @return true if the string is found
+     */
+    private static boolean startsWith(final byte[] buffer,
+                                      final int length,
+                                      final int pos,
+                                      final String str)
+    {
+        boolean ret = pos + str.length() <= length;
+        for (int i = 0; ret && i < str.length(); i++) {
+            ret = buffer[pos + i] == str.charAt(i);
+        }
+        return ret;
+    }
+
+    /**
+     * Is the byte a XML whitespace.
+     *
+     * @param value the byte
+     * @return true if whitespace
+     */
+    private static boolean isWhitespace(final byte value)
+    {
+        return value == ' ' || value == '\t' || value == '\r' || value == '\n';
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link JarRegistry}.
+ *
+ * @author The eFaps Team
+ */
+public class JarRegistryTest
+{
+
+    @Test
+    public void entryName()
+        throws IOException
+    {
+        assertEquals("org/efaps/Type.xml", JarRegistry.getEntryName(new URL("jar:file:/a.jar!/org/efaps/Type.xml")));
+        assertEquals("a b/ü x%.xml", JarRegistry.getEntryName(new URL("jar:file:/a.jar!/a%20b/%C3%BC%20x%25.xml")));
+        // split at the first separator like the connection of the JDK
+        assertEquals("x!/y.xml", JarRegistry.getEntryName(new URL("jar:file:/a.jar!/x!/y.xml")));
+        assertNull(JarRegistry.getEntryName(new URL("file:/a.jar")));
+    }
+
+    @Test
+    public void malformedEscape()
+    {
+        assertThrows(IllegalArgumentException.class,
+                        () -> JarRegistry.getEntryName(new URL("jar:file:/a.jar!/a%2")));
+    }
+
+    @Test
+    public void read()
+        throws IOException
+    {
+        final byte[] content = "<datamodel-type/>".getBytes(StandardCharsets.UTF_8);
+        final File file = Files.createTempFile("registry", ".jar").toFile();
+        try {
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file.toPath()))) {
+                out.putNextEntry(new JarEntry("dir/ü x.xml"));
+                out.write(content);
+                out.closeEntry();
+            }
+            final String jarUrl = "jar:" + file.toURI().toURL() + "!/";
+            try (JarRegistry registry = new JarRegistry()) {
+                final URL url = new URL(jarUrl + "dir/%C3%BC%20x.xml");
+                assertArrayEquals(content, registry.read(url));
+                assertEquals(content.length, registry.getSize(url));
+                // the jar is opened only once
+                assertSame(registry.getJarFile(file), registry.getJarFile(file));
+                assertThrows(FileNotFoundException.class, () -> registry.read(new URL(jarUrl + "missing.xml")));
+                assertEquals(file.length(), registry.getSize(file.toURI().toURL()));
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ParallelGzipOutputStream}.
+ *
+ * @author The eFaps Team
+ */
+public class ParallelGzipOutputStreamTest
+{
+
+    @Test
+    public void roundTrip()
+        throws IOException
+    {
+        final byte[] data = getData(3 * 1024 * 1024 + 17);
+        // smaller than the dictionary, the default and larger blocks
+        for (final int blockSize : new int[] { 1024, 32 * 1024 + 1, 128 * 1024, 1024 * 1024 }) {
+            for (final int threads : new int[] { 1, 4 }) {
+                final byte[] compressed = compress(data, threads, blockSize);
+                assertArrayEquals(data, decompress(compressed));
+            }
+        }
+    }
+
+    @Test
+    public void exactMultipleOfBlocks()
+        throws IOException
+    {
+        final byte[] data = getData(4 * 64 * 1024);
+        assertArrayEquals(data, decompress(compress(data, 2, 64 * 1024)));
+    }
+
+    @Test
+    public void empty()
+        throws IOException
+    {
+        assertEquals(0, decompress(compress(new byte[0], 2, 64 * 1024)).length);
+    }
+
+    @Test
+    public void singleBytes()
+        throws IOException
+    {
+        final byte[] data = getData(100 * 1024);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gzip = new ParallelGzipOutputStream(out, 3, 32 * 1024)) {
+            for (final byte b : data) {
+                gzip.write(b);
+            }
+        }
+        assertArrayEquals(data, decompress(out.toByteArray()));
+    }
+
+    @Test
+    public void dictionaryIsUsed()
+        throws IOException
+    {
+        // random data repeated within the window, so that without the
+        // dictionary every block would start incompressible
+        final byte[] unit = getRandom(16 * 1024);
+        final byte[] data = new byte[16 * unit.length];
+        for (int i = 0; i < 16; i++) {
+            System.arraycopy(unit, 0, data, i * unit.length, unit.length);
+        }
+        final byte[] compressed = compress(data, 4, 2 * unit.length);
+        assertArrayEquals(data, decompress(compressed));
+        assertTrue(compressed.length < 2 * unit.length);
+    }
+
+    @Test
+    public void trailer()
+        throws IOException
+    {
+        final byte[] data = getData(200 * 1024);
+        final byte[] compressed = compress(data, 2, 64 * 1024);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final int length = compressed.length;
+        assertEquals(crc.getValue(), readInt(compressed, length - 8) & 0xFFFFFFFFL);
+        // ISIZE is the size modulo 2^32
+        assertEquals(data.length, readInt(compressed, length - 4));
+    }
+
+    @Test
+    public void writeAfterClose()
+        throws IOException
+    {
+        final OutputStream gzip = new ParallelGzipOutputStream(new ByteArrayOutputStream(), 1, 1024);
+        gzip.close();
+        gzip.close();
+        assertThrows(IOException.class, () -> gzip.write(1));
+    }
+
+    /**
+     * Compress with the parallel stream, written in chunks of varying size.
+     *
+     * @param _data the data
+     * @param _threads number of threads
+     * @param _blockSize the block size
+     * @return the compressed data
+     * @throws IOException on error
+     */
+    private byte[] compress(final byte[] _data,
+                            final int _threads,
+                            final int _blockSize)
+        throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Random random = new Random(_blockSize);
+        try (OutputStream gzip = new ParallelGzipOutputStream(out, _threads, _blockSize)) {
+            int pos = 0;
+            while (pos < _data.length) {
+                final int length = Math.min(_data.length - pos, random.nextInt(20000) + 1);
+                gzip.write(_data, pos, length);
+                pos += length;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompress with the gzip stream of the JDK.
+     *
+     * @param _compressed the compressed data
+     * @return the data
+     * @throws IOException on error
+     */
+    private byte[] decompress(final byte[] _compressed)
+        throws IOException
+    {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(_compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Compressible data, lines of text with some variation.
+     *
+     * @param _size the size
+     * @return the data
+     */
+    private byte[] getData(final int _size)
+    {
+        final Random random = new Random(_size);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(_size);
+        while (out.size() < _size) {
+            out.writeBytes(("<attribute><name>Name" + random.nextInt(500) + "</name></attribute>\n")
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+        final byte[] ret = new byte[_size];
+        System.arraycopy(out.toByteArray(), 0, ret, 0, _size);
+        return ret;
+    }
+
+    /**
+     * Incompressible data.
+     *
+     * @param _size the size
+     * @return the data
+     */
+    private byte[] getRandom(final int _size)
+    {
+        final byte[] ret = new byte[_size];
+        new Random(_size).nextBytes(ret);
+        return ret;
+    }
+
+    /**
+     * Read a little endian int.
+     *
+     * @param _bytes the bytes
+     * @param _pos the position
+     * @return the value
+     */
+    private int readInt(final byte[] _bytes,
+                        final int _pos)
+    {
+        return (_bytes[_pos] & 0xFF) | (_bytes[_pos + 1] & 0xFF) << 8 | (_bytes[_pos + 2] & 0xFF) << 16
+                        | (_bytes[_pos + 3] & 0xFF) << 24;
+    }
+}
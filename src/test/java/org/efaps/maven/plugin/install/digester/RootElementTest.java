@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.maven.plugin.install.digester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link RootElement}.
+ *
+ * @author The eFaps Team
+ */
+public class RootElementTest
+{
+
+    @Test
+    public void plain()
+        throws IOException
+    {
+        assertEquals("datamodel-type", sniff("<datamodel-type xmlns=\"http://www.efaps.org/xsd\">"));
+        assertEquals("ui-form", sniff("<ui-form>"));
+        assertEquals("ui-table", sniff("  \n<ui-table/>"));
+    }
+
+    @Test
+    public void declarationAndComment()
+        throws IOException
+    {
+        assertEquals("ui-command", sniff("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<!--\n  Copyright © 2003 - 2024 The eFaps Team (-)\n  <not-the-root>\n-->\n"
+                        + "<?some-instruction data?>\n<ui-command>"));
+    }
+
+    @Test
+    public void byteOrderMark()
+        throws IOException
+    {
+        final byte[] xml = "<?xml version=\"1.0\"?><ui-menu>".getBytes(StandardCharsets.UTF_8);
+        final byte[] content = new byte[xml.length + 3];
+        content[0] = (byte) 0xEF;
+        content[1] = (byte) 0xBB;
+        content[2] = (byte) 0xBF;
+        System.arraycopy(xml, 0, content, 3, xml.length);
+        assertEquals("ui-menu", RootElement.sniff(new ByteArrayInputStream(content)));
+    }
+
+    @Test
+    public void documentType()
+        throws IOException
+    {
+        assertEquals("datamodel-sqltable", sniff("<?xml version=\"1.0\"?>\n"
+                        + "<!DOCTYPE datamodel-sqltable [\n  <!ENTITY x \"<fake>\">\n]>\n<datamodel-sqltable>"));
+    }
+
+    @Test
+    public void unknown()
+        throws IOException
+    {
+        // the root element behind the sniffed bytes
+        assertNull(sniff("<!--" + "x".repeat(RootElement.LIMIT) + "--><ui-form>"));
+        // not finished within the content
+        assertNull(sniff("<?xml version=\"1.0\"?><ui-fo"));
+        assertNull(sniff("<!-- open comment"));
+        assertNull(sniff("no xml"));
+        assertNull(sniff(""));
+    }
+
+    @Test
+    public void streamIsReset()
+        throws IOException
+    {
+        final String xml = "<?xml version=\"1.0\"?><ui-form><uuid>1</uuid></ui-form>";
+        final InputStream stream = new BufferedInputStream(
+                        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("ui-form", RootElement.sniff(stream));
+        assertEquals(xml, new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void bound()
+    {
+        assertTrue(RootElement.isBound("datamodel-type", TypeCI.class, FormCI.class));
+        assertFalse(RootElement.isBound("ui-table", TypeCI.class, FormCI.class));
+        assertTrue(RootElement.isBound(null, TypeCI.class));
+    }
+
+    /**
+     * Sniff a string.
+     *
+     * @param _xml the content
+     * @return the name of the root element
+     * @throws IOException on error
+     */
+    private String sniff(final String _xml)
+        throws IOException
+    {
+        return RootElement.sniff(new ByteArrayInputStream(_xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}